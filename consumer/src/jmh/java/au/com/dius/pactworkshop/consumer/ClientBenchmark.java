@@ -0,0 +1,59 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * Measures the consumer side of a call: request building, the loopback round trip to a stubbed
+ * provider and parsing of the payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClientBenchmark {
+
+  private WireMockServer provider;
+  private Client client;
+  private String validDate;
+
+  @Setup
+  public void startProvider() {
+    provider = new WireMockServer(options().dynamicPort());
+    provider.start();
+    provider.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}")));
+
+    client = new Client("http://localhost:" + provider.port());
+    validDate = LocalDateTime.now().toString();
+  }
+
+  @TearDown
+  public void stopProvider() {
+    provider.stop();
+  }
+
+  @Benchmark
+  public List<Object> fetchAndProcessData() throws UnirestException {
+    return client.fetchAndProcessData(validDate);
+  }
+}
@@ -0,0 +1,94 @@
+package au.com.dius.pactworkshop.consumer;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to a provider endpoint after {@code failureThreshold} failures in a row.
+ * Once {@code openDuration} has passed a single probe request is let through: if it succeeds the
+ * endpoint is used again, if it fails the breaker stays open for another {@code openDuration}.
+ */
+final class CircuitBreaker {
+  enum State { CLOSED, OPEN, HALF_OPEN }
+
+  /**
+   * A breaker that never opens, for clients that have not configured one.
+   */
+  static CircuitBreaker disabled() {
+    return new CircuitBreaker(Integer.MAX_VALUE, Duration.ZERO, System::nanoTime);
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+  private final LongSupplier nanoTime;
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean probing;
+
+  CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoTime) {
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("failureThreshold must be at least 1");
+    }
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * Whether a request could be sent now, without claiming the probe of a half-open breaker.
+   */
+  synchronized boolean isAvailable() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        return nanoTime.getAsLong() - openedAt >= openNanos;
+      default:
+        return !probing;
+    }
+  }
+
+  /**
+   * Claims permission to send a request. Every successful claim must be followed by exactly one of
+   * {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancelled()}.
+   */
+  synchronized boolean tryAcquire() {
+    if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos) {
+      state = State.HALF_OPEN;
+    }
+    if (state == State.CLOSED) {
+      return true;
+    }
+    if (state == State.HALF_OPEN && !probing) {
+      probing = true;
+      return true;
+    }
+    return false;
+  }
+
+  synchronized void onSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+    probing = false;
+  }
+
+  synchronized void onFailure() {
+    if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = nanoTime.getAsLong();
+      probing = false;
+    }
+  }
+
+  /**
+   * The request was abandoned before it had an outcome, e.g. because a hedged request won.
+   */
+  synchronized void onCancelled() {
+    probing = false;
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+}
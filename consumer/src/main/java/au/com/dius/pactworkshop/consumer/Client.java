@@ -1,59 +1,707 @@
 package au.com.dius.pactworkshop.consumer;
 
+import au.com.dius.pactworkshop.tracing.Span;
+import au.com.dius.pactworkshop.tracing.Tracer;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.JsonNode;
 import com.mashape.unirest.http.Unirest;
 import com.mashape.unirest.http.exceptions.UnirestException;
 import com.mashape.unirest.request.HttpRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.StringUtils;
-import org.json.JSONObject;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAccessor;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
-public class Client {
+public class Client implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Client.class);
+  private static final DateTimeFormatter VALID_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX");
+  private static final String ACCEPT_JSON = "application/json";
+  private static final String TRACEPARENT = "traceparent";
+  private static final String ACCEPT_BINARY = ProviderJsonParser.SMILE + ", " + ProviderJsonParser.CBOR + ";q=0.9, application/json;q=0.8";
 
   private final String url;
+  private final String accept;
+  private final Duration deadline;
+  private final ResilientRequests resilience;
+  private final Tracer tracer;
+  private final boolean singleAttempt;
+  private final int maxConnections;
+  private final int maxConnectionsPerRoute;
+  private final Duration keepAlive;
+  private final Duration connectTimeout;
+  private final Duration socketTimeout;
+  private final int ioThreads;
+  private volatile CloseableHttpAsyncClient asyncClient;
+  private final Map<String, Validated> validations = new ConcurrentHashMap<>();
+  private final AsyncCache<String, ResilientRequests.Answer> cache;
+  private final ClientMetrics metrics;
 
   public Client(String url) {
-    this.url = url;
+    this(builder(url));
   }
 
-  private Optional<JsonNode> loadProviderJson(String dateTime) throws UnirestException {
-    HttpRequest getRequest = Unirest.get(url + "/provider.json");
+  private Client(Builder builder) {
+    this.url = builder.urls.get(0);
+    this.deadline = builder.deadline;
+    this.tracer = builder.traceSampleRate > 0 ? new Tracer(builder.traceSampleRate) : Tracer.DISABLED;
+    this.resilience = new ResilientRequests(builder.urls, this::attempt, builder.hedgeDelay,
+      builder.breakerThreshold, builder.breakerOpenDuration, tracer, builder.completionExecutor, System::nanoTime);
+    // without any of these a call is exactly one request, which the synchronous API sends itself
+    this.singleAttempt = builder.urls.size() == 1 && builder.deadline == null && builder.hedgeDelay == null
+      && builder.breakerThreshold == 0;
+    this.accept = builder.acceptBinary ? ACCEPT_BINARY : ACCEPT_JSON;
+    this.maxConnections = builder.maxConnections;
+    this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+    this.keepAlive = builder.keepAlive;
+    this.connectTimeout = builder.connectTimeout;
+    this.socketTimeout = builder.socketTimeout;
+    this.ioThreads = builder.ioThreads;
+    this.metrics = new ClientMetrics(builder.meterRegistry);
+    this.cache = builder.cacheMaxEntries > 0
+      ? Caffeine.newBuilder()
+          .expireAfterWrite(builder.cacheTtl)
+          .maximumSize(builder.cacheMaxEntries)
+          .recordStats()
+          .<String, ResilientRequests.Answer>buildAsync()
+      : null;
+  }
+
+  public static Builder builder(String url) {
+    return new Builder(Collections.singletonList(url));
+  }
+
+  /**
+   * A client that spreads /provider.json calls over several instances of the provider. Batches and
+   * subscriptions go to the first of them.
+   */
+  public static Builder builder(List<String> urls) {
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("At least one provider URL is required");
+    }
+    return new Builder(new ArrayList<>(urls));
+  }
+
+  private HttpResponse<InputStream> loadProviderJson(String dateTime, Validated validated, Span span)
+    throws UnirestException {
+    HttpRequest getRequest = Unirest.get(url + "/provider.json")
+      .header("Accept", accept);
+    if (span.isRecording()) {
+      getRequest = getRequest.header(TRACEPARENT, span.traceparent());
+    }
 
     if (StringUtils.isNotEmpty(dateTime)) {
       getRequest = getRequest.queryString("validDate", dateTime);
     }
+    if (validated != null) {
+      getRequest = getRequest.header("If-None-Match", validated.etag);
+    }
 
-    HttpResponse<JsonNode> jsonNodeHttpResponse = getRequest.asJson();
-    if (jsonNodeHttpResponse.getStatus() == 200) {
-      return Optional.of(jsonNodeHttpResponse.getBody());
-    } else {
-      return Optional.empty();
+    Timer.Sample sample = metrics.start();
+    try {
+      HttpResponse<InputStream> httpResponse = getRequest.asBinary();
+      metrics.response(sample, httpResponse.getStatus());
+      span.setAttribute("http.status", httpResponse.getStatus());
+      return httpResponse;
+    } catch (UnirestException e) {
+      metrics.failure(sample, e.getCause() != null ? e.getCause() : e);
+      span.recordException(e.getCause() != null ? e.getCause() : e);
+      throw e;
     }
   }
 
   public List<Object> fetchAndProcessData(String dateTime) throws UnirestException {
-    Optional<JsonNode> data = loadProviderJson(dateTime);
-    System.out.println("data=" + data);
-
-    if (data != null && data.isPresent()) {
-      JSONObject jsonObject = data.get().getObject();
-      int value = 100 / jsonObject.getInt("count");
-      TemporalAccessor date =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")
-            .parse(jsonObject.getString("validDate"));
-
-      System.out.println("value=" + value);
-      System.out.println("date=" + date);
-      return Arrays.asList(value, OffsetDateTime.from(date));
+    if (cache != null || !singleAttempt) {
+      return join(fetchAndProcessDataAsync(dateTime));
+    }
+
+    Span span = tracer.startSpan("provider.json", null);
+    try {
+      return fetchAndProcessData(dateTime, span);
+    } finally {
+      span.end();
+    }
+  }
+
+  private List<Object> fetchAndProcessData(String dateTime, Span span) throws UnirestException {
+    Validated validated = validations.get(url);
+    HttpResponse<InputStream> httpResponse = loadProviderJson(dateTime, validated, span);
+
+    if (httpResponse.getStatus() == 304 && validated != null) {
+      LOGGER.debug("event=providerResponse status=304 etag={}", validated.etag);
+      return validated.result;
+    }
+
+    Optional<ProviderJsonParser.Fields> data = Optional.empty();
+    if (httpResponse.getStatus() == 200) {
+      Span parseSpan = span.startChild("parse");
+      try {
+        data = Optional.of(parse(httpResponse.getBody(), firstHeader(httpResponse.getHeaders(), "Content-Type")));
+      } finally {
+        parseSpan.end();
+      }
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("event=providerResponse status={} data={}", httpResponse.getStatus(), data.orElse(null));
+    }
+
+    List<Object> result = processData(data);
+    if (data.isPresent()) {
+      remember(url, firstHeader(httpResponse.getHeaders(), "ETag"), result);
+    }
+    return result;
+  }
+
+  /**
+   * Like {@link #fetchAndProcessData(String)}, but fails with a {@link TimeoutException} (as the cause
+   * of the UnirestException) if there is no answer within {@code deadline}, overriding the client's
+   * default deadline.
+   */
+  public List<Object> fetchAndProcessData(String dateTime, Duration deadline) throws UnirestException {
+    return join(fetchAndProcessDataAsync(dateTime, deadline));
+  }
+
+  private static List<Object> join(CompletableFuture<List<Object>> result) throws UnirestException {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UnirestException) {
+        throw (UnirestException) e.getCause();
+      }
+      throw new UnirestException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+    }
+  }
+
+  /**
+   * Evaluates many dates in one round trip. The result holds one entry per date, in the same order,
+   * each shaped like the result of {@link #fetchAndProcessData(String)}. The provider must answer with
+   * one item per date; any other number of items is rejected with a {@link UnirestException}.
+   */
+  public List<List<Object>> fetchAndProcessBatch(List<String> dateTimes) throws UnirestException {
+    HttpResponse<InputStream> httpResponse = Unirest.post(url + "/provider/batch")
+      .header("Content-Type", "application/json")
+      .body(new JSONArray(dateTimes).toString())
+      .asBinary();
+
+    List<List<Object>> results = new ArrayList<>(dateTimes.size());
+    if (httpResponse.getStatus() == 200) {
+      List<ProviderJsonParser.Fields> items;
+      try {
+        items = ProviderJsonParser.parseBatch(httpResponse.getBody());
+      } catch (IOException e) {
+        throw new UnirestException(e);
+      }
+      if (items.size() != dateTimes.size()) {
+        throw new UnirestException("Asked for " + dateTimes.size() + " dates in a batch but got "
+          + items.size() + " answers back");
+      }
+      for (ProviderJsonParser.Fields item : items) {
+        results.add(processData(Optional.ofNullable(item)));
+      }
+    } else {
+      for (int i = 0; i < dateTimes.size(); i++) {
+        results.add(processData(Optional.empty()));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Non-blocking variant of {@link #fetchAndProcessData(String)}. The request is sent on the pooled
+   * connections of this client and the returned future completes on one of its I/O threads, or on the
+   * {@linkplain Builder#completionExecutor(Executor) completion executor} if one is set.
+   */
+  public CompletableFuture<List<Object>> fetchAndProcessDataAsync(String dateTime) {
+    if (cache != null) {
+      return cached(dateTime);
+    }
+    return loadAsync(dateTime);
+  }
+
+  /**
+   * Like {@link #fetchAndProcessDataAsync(String)}, but completes with a {@link TimeoutException} if
+   * there is no answer within {@code deadline}, overriding the client's default deadline. A cached
+   * lookup that times out keeps loading for later callers.
+   */
+  public CompletableFuture<List<Object>> fetchAndProcessDataAsync(String dateTime, Duration deadline) {
+    if (cache != null) {
+      return resilience.withDeadline(cached(dateTime), deadline);
+    }
+    return resilience.call(dateTime, deadline).thenApply(answer -> answer.result);
+  }
+
+  /**
+   * Hit, miss and eviction counts of the response cache. All zero when caching is not enabled.
+   */
+  public CacheStats cacheStats() {
+    return cache == null ? CacheStats.empty() : cache.synchronous().stats();
+  }
+
+  private CompletableFuture<List<Object>> loadAsync(String dateTime) {
+    return resilience.call(dateTime, deadline).thenApply(answer -> answer.result);
+  }
+
+  /**
+   * Looks {@code dateTime} up under its cache key, but sends it to the provider as the caller wrote
+   * it, so the provider validates exactly what it would without the cache.
+   * <p>
+   * Only answers that carry data are kept. An error answer (no data yet, a rejected validDate or a
+   * failing provider) goes to the callers that shared its request and is then dropped, so the next
+   * lookup asks again instead of getting it for the rest of the TTL. The returned future depends on
+   * the cached one, so callers cannot complete or cancel it.
+   */
+  private CompletableFuture<List<Object>> cached(String dateTime) {
+    String key = cacheKey(dateTime);
+    CompletableFuture<ResilientRequests.Answer> answer =
+      cache.get(key, (k, executor) -> resilience.call(dateTime, deadline));
+    return answer.thenApply(loaded -> {
+      if (loaded.status != 200 && loaded.status != 304) {
+        cache.asMap().remove(key, answer);
+      }
+      return loaded.result;
+    });
+  }
+
+  /**
+   * Sends a single /provider.json request to one endpoint. Cancelling the returned future aborts the
+   * request.
+   */
+  private CompletableFuture<ResilientRequests.Answer> attempt(String baseUrl, String dateTime, Span span) {
+    CompletableFuture<ResilientRequests.Answer> result = new CompletableFuture<>();
+    HttpGet getRequest;
+    try {
+      getRequest = new HttpGet(providerJsonUri(baseUrl, dateTime));
+    } catch (URISyntaxException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    getRequest.setHeader("Accept", accept);
+    // unlike the synchronous client, the asynchronous one leaves decompression to us
+    getRequest.setHeader("Accept-Encoding", "gzip, deflate");
+    Validated validated = validations.get(baseUrl);
+    if (validated != null) {
+      getRequest.setHeader("If-None-Match", validated.etag);
+    }
+    if (span.isRecording()) {
+      getRequest.setHeader(TRACEPARENT, span.traceparent());
+    }
+
+    Timer.Sample sample = metrics.start();
+    Future<org.apache.http.HttpResponse> request = asyncClient().execute(getRequest, new FutureCallback<org.apache.http.HttpResponse>() {
+      @Override
+      public void completed(org.apache.http.HttpResponse response) {
+        int status = response.getStatusLine().getStatusCode();
+        metrics.response(sample, status);
+        try {
+          if (status == 304 && validated != null) {
+            EntityUtils.consume(response.getEntity());
+            result.complete(new ResilientRequests.Answer(status, validated.result));
+          } else if (status == 200) {
+            ProviderJsonParser.Fields data;
+            Span parseSpan = span.startChild("parse");
+            long parseStart = System.nanoTime();
+            HttpEntity entity = decompressed(response.getEntity());
+            Header contentType = entity.getContentType();
+            try (InputStream body = entity.getContent()) {
+              data = ProviderJsonParser.parse(body, contentType == null ? null : contentType.getValue());
+            } finally {
+              metrics.parsed(parseStart);
+              parseSpan.end();
+            }
+            List<Object> processed = processData(Optional.of(data));
+            Header etag = response.getFirstHeader("ETag");
+            remember(baseUrl, etag == null ? null : etag.getValue(), processed);
+            result.complete(new ResilientRequests.Answer(status, processed));
+          } else {
+            EntityUtils.consume(response.getEntity());
+            result.complete(new ResilientRequests.Answer(status, processData(Optional.empty())));
+          }
+        } catch (IOException | RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        metrics.failure(sample, ex);
+        result.completeExceptionally(ex);
+      }
+
+      @Override
+      public void cancelled() {
+        result.cancel(false);
+      }
+    });
+    result.whenComplete((answer, error) -> {
+      if (result.isCancelled()) {
+        request.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Subscribes to the provider's pushed data changes instead of polling /provider.json.
+   * {@code onChange} is called on an I/O dispatch thread, so it should hand off anything slow.
+   */
+  public DataSubscription subscribe(Consumer<ProviderData> onChange) {
+    return new DataSubscription(asyncClient(), url, onChange);
+  }
+
+  /**
+   * Subscribes to the provider's pushed data changes, for callers that only read
+   * {@link DataSubscription#latest()}.
+   */
+  public DataSubscription subscribe() {
+    return subscribe(data -> { });
+  }
+
+  private static HttpEntity decompressed(HttpEntity entity) {
+    Header encoding = entity.getContentEncoding();
+    if (encoding != null) {
+      if ("gzip".equalsIgnoreCase(encoding.getValue())) {
+        return new GzipDecompressingEntity(entity);
+      } else if ("deflate".equalsIgnoreCase(encoding.getValue())) {
+        return new DeflateDecompressingEntity(entity);
+      }
+    }
+    return entity;
+  }
+
+  private ProviderJsonParser.Fields parse(InputStream body, String contentType) throws UnirestException {
+    long parseStart = System.nanoTime();
+    try (InputStream in = body) {
+      return ProviderJsonParser.parse(in, contentType);
+    } catch (IOException e) {
+      throw new UnirestException(e);
+    } finally {
+      metrics.parsed(parseStart);
+    }
+  }
+
+  private List<Object> processData(Optional<ProviderJsonParser.Fields> data) {
+    if (data.isPresent()) {
+      int value = 100 / data.get().count;
+      OffsetDateTime date = OffsetDateTime.parse(data.get().validDate, VALID_DATE_FORMAT);
+
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("event=providerData value={} date={}", value, date);
+      }
+      return Collections.unmodifiableList(Arrays.asList(value, date));
     } else {
       return Arrays.asList(0, null);
     }
   }
+
+  /**
+   * Dates that only differ in formatting (e.g. "2020-01-01T10:00" and "2020-01-01T10:00:00") share
+   * a cache entry. Anything else, including dates with surrounding spaces, is its own key, so a value
+   * the provider rejects never shares an entry with one it accepts.
+   */
+  private static String cacheKey(String dateTime) {
+    if (dateTime == null) {
+      return "";
+    }
+    try {
+      return LocalDateTime.parse(dateTime).toString();
+    } catch (DateTimeParseException e) {
+      return dateTime;
+    }
+  }
+
+  /**
+   * Keeps the ETag of the last successful response from {@code baseUrl} so the next request to it can
+   * be made conditional. Each provider instance has its own data, so each gets its own entry. Within
+   * one instance the entry is shared by all validDates: the body does not depend on the validDate
+   * asked about, so a 304 for any of them means the remembered result is still current.
+   * <p>
+   * The body carries the provider's current time to the second, and so does its ETag. A 304 is
+   * therefore only possible for a repeated request within the same second.
+   */
+  private void remember(String baseUrl, String etag, List<Object> result) {
+    if (etag != null) {
+      validations.put(baseUrl, new Validated(etag, result));
+    }
+  }
+
+  private static String firstHeader(Map<String, List<String>> headers, String name) {
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+        return header.getValue().get(0);
+      }
+    }
+    return null;
+  }
+
+  private static URI providerJsonUri(String baseUrl, String dateTime) throws URISyntaxException {
+    URIBuilder uriBuilder = new URIBuilder(baseUrl + "/provider.json");
+    if (StringUtils.isNotEmpty(dateTime)) {
+      uriBuilder.addParameter("validDate", dateTime);
+    }
+    return uriBuilder.build();
+  }
+
+  private CloseableHttpAsyncClient asyncClient() {
+    CloseableHttpAsyncClient client = asyncClient;
+    if (client == null) {
+      synchronized (this) {
+        client = asyncClient;
+        if (client == null) {
+          client = buildAsyncClient();
+          client.start();
+          asyncClient = client;
+        }
+      }
+    }
+    return client;
+  }
+
+  private CloseableHttpAsyncClient buildAsyncClient() {
+    long keepAliveMillis = keepAlive.toMillis();
+    return HttpAsyncClients.custom()
+      .setMaxConnTotal(maxConnections)
+      .setMaxConnPerRoute(maxConnectionsPerRoute)
+      .setKeepAliveStrategy((response, context) -> {
+        long requested = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return requested > 0 ? Math.min(requested, keepAliveMillis) : keepAliveMillis;
+      })
+      .setDefaultIOReactorConfig(IOReactorConfig.custom()
+        .setIoThreadCount(ioThreads)
+        .build())
+      .setDefaultRequestConfig(RequestConfig.custom()
+        .setConnectTimeout((int) connectTimeout.toMillis())
+        .setSocketTimeout((int) socketTimeout.toMillis())
+        .build())
+      .build();
+  }
+
+  /**
+   * The tracer that records sampled calls, each with a span per request sent and the time spent
+   * parsing. Sampled requests carry a {@code traceparent} header, so the providers' spans for them
+   * share the trace id. Unsampled ones carry none, and the providers sample them at their own rate.
+   */
+  public Tracer getTracer() {
+    return tracer;
+  }
+
+  CircuitBreaker.State breakerState(String url) {
+    return resilience.breakerState(url);
+  }
+
+  /**
+   * Shuts down the connection pool used by the asynchronous API, if it was ever started, and the
+   * timer behind deadlines and hedging.
+   */
+  @Override
+  public void close() throws IOException {
+    resilience.close();
+    synchronized (this) {
+      if (asyncClient != null) {
+        asyncClient.close();
+        asyncClient = null;
+      }
+    }
+  }
+
+  private static final class Validated {
+    private final String etag;
+    private final List<Object> result;
+
+    private Validated(String etag, List<Object> result) {
+      this.etag = etag;
+      this.result = result;
+    }
+  }
+
+  public static class Builder {
+    private final List<String> urls;
+    private int maxConnections = 200;
+    private int maxConnectionsPerRoute = 20;
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration socketTimeout = Duration.ofSeconds(60);
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    private Duration cacheTtl = Duration.ZERO;
+    private long cacheMaxEntries;
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+    private boolean acceptBinary;
+    private double traceSampleRate;
+    private Duration deadline;
+    private Duration hedgeDelay;
+    private int breakerThreshold;
+    private Duration breakerOpenDuration = Duration.ZERO;
+    private Executor completionExecutor = Runnable::run;
+
+    private Builder(List<String> urls) {
+      this.urls = urls;
+    }
+
+    /**
+     * Upper bound on open connections across all routes. Requests beyond it wait for a free
+     * connection instead of opening new ones.
+     */
+    public Builder maxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return this;
+    }
+
+    /**
+     * How long an idle connection is kept for reuse, unless the provider asks for less with a
+     * Keep-Alive header.
+     */
+    public Builder keepAlive(Duration keepAlive) {
+      this.keepAlive = keepAlive;
+      return this;
+    }
+
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    public Builder socketTimeout(Duration socketTimeout) {
+      this.socketTimeout = socketTimeout;
+      return this;
+    }
+
+    /**
+     * Number of I/O dispatch threads shared by all in-flight asynchronous requests.
+     */
+    public Builder ioThreads(int ioThreads) {
+      this.ioThreads = ioThreads;
+      return this;
+    }
+
+    /**
+     * Enables the in-memory response cache. Results with data are kept per validDate for {@code ttl},
+     * at most {@code maxEntries} of them, and concurrent lookups of the same validDate share one request.
+     * Cached lookups, including synchronous ones, go out on the asynchronous connection pool.
+     */
+    public Builder cache(Duration ttl, long maxEntries) {
+      this.cacheTtl = ttl;
+      this.cacheMaxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * Registry for the request and parse timers. Defaults to Micrometer's global registry, which
+     * records nothing until a concrete registry is added to it.
+     */
+    public Builder meterRegistry(MeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+      return this;
+    }
+
+    /**
+     * Asks the provider for Smile or CBOR instead of JSON. Responses are decoded according to their
+     * Content-Type either way, so a provider that only speaks JSON still works.
+     */
+    public Builder acceptBinary(boolean acceptBinary) {
+      this.acceptBinary = acceptBinary;
+      return this;
+    }
+
+    /**
+     * Fails /provider.json calls that have not been answered within {@code deadline} with a
+     * {@link TimeoutException}, cancelling their outstanding requests. Calls can override it.
+     */
+    public Builder deadline(Duration deadline) {
+      this.deadline = deadline;
+      return this;
+    }
+
+    /**
+     * Sends a call that is still unanswered after the p95 of recent latencies to a second endpoint as
+     * well, and uses whichever answers first. {@code initialDelay} is used until enough latencies have
+     * been seen. A call never makes more than two requests.
+     */
+    public Builder hedge(Duration initialDelay) {
+      this.hedgeDelay = initialDelay;
+      return this;
+    }
+
+    /**
+     * Stops sending calls to an endpoint after {@code failureThreshold} consecutive failures
+     * (connection errors, timeouts or 5xx responses) and probes it again after {@code openDuration}.
+     */
+    public Builder circuitBreaker(int failureThreshold, Duration openDuration) {
+      if (failureThreshold < 1) {
+        throw new IllegalArgumentException("failureThreshold must be at least 1");
+      }
+      this.breakerThreshold = failureThreshold;
+      this.breakerOpenDuration = openDuration;
+      return this;
+    }
+
+    /**
+     * Completes /provider.json calls on {@code executor} instead of the I/O thread that received the
+     * answer, so that slow dependent stages do not hold up other requests' I/O. By default they run
+     * on the I/O thread, which saves a hand-off per call.
+     */
+    public Builder completionExecutor(Executor executor) {
+      this.completionExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Traces this fraction of /provider.json calls, see {@link Client#getTracer()}. None by default.
+     */
+    public Builder traceSampleRate(double traceSampleRate) {
+      if (traceSampleRate < 0 || traceSampleRate > 1) {
+        throw new IllegalArgumentException("traceSampleRate must be between 0 and 1");
+      }
+      this.traceSampleRate = traceSampleRate;
+      return this;
+    }
+
+    public Client build() {
+      return new Client(this);
+    }
+  }
 }
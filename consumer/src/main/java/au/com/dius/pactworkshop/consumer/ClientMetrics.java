@@ -0,0 +1,65 @@
+package au.com.dius.pactworkshop.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times the two halves of a provider call: the HTTP exchange, from sending the request to having
+ * the response (tagged with its status, or with the exception if there was none), and parsing of
+ * the body.
+ */
+final class ClientMetrics {
+  static final String RESPONSES = "provider.client.response";
+  static final String PARSING = "provider.client.parse";
+
+  private final MeterRegistry registry;
+  private final AtomicReferenceArray<Timer> statusTimers = new AtomicReferenceArray<>(600);
+  private final Timer parsing;
+
+  ClientMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.parsing = Timer.builder(PARSING)
+      .description("Time taken to parse provider responses")
+      .publishPercentiles(0.5, 0.95, 0.99)
+      .register(registry);
+  }
+
+  Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  void response(Timer.Sample sample, int status) {
+    if (status < 0 || status >= statusTimers.length()) {
+      sample.stop(responseTimer(Integer.toString(status), "None"));
+      return;
+    }
+    Timer timer = statusTimers.get(status);
+    if (timer == null) {
+      timer = responseTimer(Integer.toString(status), "None");
+      statusTimers.set(status, timer);
+    }
+    sample.stop(timer);
+  }
+
+  void failure(Timer.Sample sample, Throwable error) {
+    sample.stop(responseTimer("IO_ERROR", error.getClass().getSimpleName()));
+  }
+
+  void parsed(long startNanos) {
+    parsing.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer responseTimer(String status, String exception) {
+    // the registry hands back the already registered timer for a known status/exception pair
+    return Timer.builder(RESPONSES)
+      .description("Time from sending a request to the provider until its response has been received")
+      .tag("status", status)
+      .tag("exception", exception)
+      .publishPercentiles(0.5, 0.95, 0.99)
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+}
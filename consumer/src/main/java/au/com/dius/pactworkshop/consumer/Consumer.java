@@ -2,10 +2,16 @@ package au.com.dius.pactworkshop.consumer;
 
 import com.mashape.unirest.http.exceptions.UnirestException;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 public class Consumer {
-  public static void main(String[] args) throws UnirestException {
+  public static void main(String[] args) throws UnirestException, InterruptedException, IOException {
+    if (args.length > 0 && args[0].equals("load")) {
+      LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
     System.out.println(new Client("http://localhost:8080")
       .fetchAndProcessData(args.length> 0 ? args[0] : LocalDateTime.now().toString()));
   }
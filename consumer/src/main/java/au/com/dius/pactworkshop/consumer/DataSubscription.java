@@ -0,0 +1,220 @@
+package au.com.dius.pactworkshop.consumer;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncCharConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A subscription to the provider's /provider/events stream. The connection is held open on the
+ * asynchronous connection pool and re-established after {@link #RECONNECT_DELAY} (or whatever delay
+ * the provider asks for with {@code retry:}) whenever it drops, sending the last event id seen.
+ * Versions that were already seen are not passed on again.
+ */
+public final class DataSubscription implements Closeable {
+  static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataSubscription.class);
+
+  private final CloseableHttpAsyncClient client;
+  private final String url;
+  private final Consumer<ProviderData> onChange;
+  private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "provider-events-reconnect");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile ProviderData latest;
+  private volatile String lastEventId;
+  private volatile long reconnectDelayMillis = RECONNECT_DELAY.toMillis();
+  private volatile Future<Void> connection;
+  private volatile boolean closed;
+
+  DataSubscription(CloseableHttpAsyncClient client, String url, Consumer<ProviderData> onChange) {
+    this.client = client;
+    this.url = url;
+    this.onChange = onChange;
+    connect();
+  }
+
+  /**
+   * The most recent data pushed by the provider, or null until the first event has arrived.
+   */
+  public ProviderData latest() {
+    return latest;
+  }
+
+  private synchronized void connect() {
+    if (closed) {
+      return;
+    }
+    HttpGet request = new HttpGet(url + "/provider/events");
+    request.setHeader("Accept", "text/event-stream");
+    String eventId = lastEventId;
+    if (eventId != null) {
+      request.setHeader("Last-Event-ID", eventId);
+    }
+    if (!client.isRunning()) {
+      // the client the subscription was made from has been closed
+      LOGGER.debug("event=providerEventsClosed");
+      close();
+      return;
+    }
+    connection = client.execute(HttpAsyncMethods.create(request), new EventStreamConsumer(), null,
+      new FutureCallback<Void>() {
+        @Override
+        public void completed(Void result) {
+          reconnect(null);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+          reconnect(ex);
+        }
+
+        @Override
+        public void cancelled() {
+        }
+      });
+  }
+
+  private void reconnect(Exception cause) {
+    if (closed) {
+      return;
+    }
+    LOGGER.debug("event=providerEventsDisconnected reconnectMillis={}", reconnectDelayMillis, cause);
+    reconnects.schedule(this::connect, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void dispatch(String data, boolean firstOnConnection) {
+    ProviderData received;
+    try {
+      received = ProviderJsonParser.parseEvent(data);
+    } catch (IOException e) {
+      LOGGER.warn("event=providerEventsInvalid data={}", data, e);
+      return;
+    }
+    ProviderData previous = latest;
+    // the first event on a connection is the provider's current state, which may have a lower
+    // version than we have seen if the provider was restarted in between
+    boolean changed = previous == null
+      || (firstOnConnection ? received.getVersion() != previous.getVersion() : received.getVersion() > previous.getVersion());
+    if (changed) {
+      latest = received;
+      onChange.accept(received);
+    }
+  }
+
+  /**
+   * Stops listening and releases the connection. The client the subscription was made from stays
+   * open; closing that client ends its subscriptions too.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    reconnects.shutdownNow();
+    Future<Void> current = connection;
+    if (current != null) {
+      current.cancel(true);
+    }
+  }
+
+  /**
+   * Splits the stream into lines and the lines into events, as described by the server-sent events
+   * specification: {@code field: value} lines, comments starting with a colon, and a blank line to
+   * end each event.
+   */
+  private final class EventStreamConsumer extends AsyncCharConsumer<Void> {
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder data = new StringBuilder();
+    private String eventType = "";
+    private boolean firstEvent = true;
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) throws IOException {
+      int status = response.getStatusLine().getStatusCode();
+      if (status != 200) {
+        throw new IOException("Unexpected status " + status + " from " + url + "/provider/events");
+      }
+    }
+
+    @Override
+    protected void onCharReceived(CharBuffer buf, IOControl ioctrl) {
+      while (buf.hasRemaining()) {
+        char c = buf.get();
+        if (c == '\n') {
+          int length = line.length();
+          if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+          }
+          processLine(line.toString());
+          line.setLength(0);
+        } else {
+          line.append(c);
+        }
+      }
+    }
+
+    private void processLine(String text) {
+      if (text.isEmpty()) {
+        if (data.length() > 0 && ("data".equals(eventType) || eventType.isEmpty())) {
+          dispatch(data.toString(), firstEvent);
+          firstEvent = false;
+        }
+        data.setLength(0);
+        eventType = "";
+        return;
+      }
+      if (text.charAt(0) == ':') {
+        return;
+      }
+      int colon = text.indexOf(':');
+      String field = colon < 0 ? text : text.substring(0, colon);
+      String value = colon < 0 ? "" : text.substring(text.startsWith(" ", colon + 1) ? colon + 2 : colon + 1);
+      switch (field) {
+        case "data":
+          if (data.length() > 0) {
+            data.append('\n');
+          }
+          data.append(value);
+          break;
+        case "event":
+          eventType = value;
+          break;
+        case "id":
+          lastEventId = value;
+          break;
+        case "retry":
+          try {
+            reconnectDelayMillis = Long.parseLong(value);
+          } catch (NumberFormatException e) {
+            // ignored, as the specification requires
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    protected Void buildResult(HttpContext context) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.mashape.unirest.http.Unirest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@link Client#fetchAndProcessData} against a provider from a number of worker threads and
+ * reports the latency distribution and the responses by status.
+ * <p>
+ * In the closed model each worker sends its next request as soon as the previous one has completed
+ * (optionally capped at {@code rate} requests per second overall), and latency is measured from
+ * sending the request. In the open model requests are due at a fixed {@code rate} whether or not
+ * earlier ones have completed, and latency is measured from when a request was due, so time spent
+ * queued behind a slow provider is included instead of being hidden by the workers falling behind.
+ */
+public class LoadGenerator {
+  enum Model { OPEN, CLOSED }
+
+  private final Client client;
+  private final SimpleMeterRegistry registry;
+  private final String validDate;
+  private final int concurrency;
+  private final double rate;
+  private final Duration duration;
+  private final Duration warmUp;
+  private final Model model;
+
+  LoadGenerator(String url, String validDate, int concurrency, double rate, Duration duration, Duration warmUp, Model model) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be at least 1");
+    }
+    if (model == Model.OPEN && rate <= 0) {
+      throw new IllegalArgumentException("the open model needs a rate");
+    }
+    this.registry = new SimpleMeterRegistry();
+    this.client = Client.builder(url).meterRegistry(registry).build();
+    this.validDate = validDate;
+    this.concurrency = concurrency;
+    this.rate = rate;
+    this.duration = duration;
+    this.warmUp = warmUp;
+    this.model = model;
+  }
+
+  Report run() throws InterruptedException {
+    if (!warmUp.isZero()) {
+      runPhase(warmUp);
+    }
+    Map<String, Long> before = responseCounts();
+    Phase measured = runPhase(duration);
+    Map<String, Long> responses = responseCounts();
+    before.forEach((status, count) -> responses.merge(status, -count, Long::sum));
+    responses.values().removeIf(count -> count == 0);
+    return new Report(measured.recorder.getIntervalHistogram(), measured.elapsedNanos, responses, measured.errorCounts());
+  }
+
+  private Phase runPhase(Duration length) throws InterruptedException {
+    Phase phase = new Phase();
+    long start = System.nanoTime();
+    long end = start + length.toNanos();
+    long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+    AtomicLong slots = new AtomicLong();
+
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+    try {
+      List<Future<?>> running = new ArrayList<>();
+      for (int i = 0; i < concurrency; i++) {
+        running.add(workers.submit(() -> work(phase, start, end, interval, slots)));
+      }
+      for (Future<?> worker : running) {
+        worker.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Load generator worker failed", e.getCause());
+    } finally {
+      workers.shutdownNow();
+    }
+    phase.elapsedNanos = System.nanoTime() - start;
+    return phase;
+  }
+
+  private void work(Phase phase, long start, long end, long interval, AtomicLong slots) {
+    while (!Thread.currentThread().isInterrupted()) {
+      long due;
+      if (interval > 0) {
+        due = start + slots.getAndIncrement() * interval;
+        if (due >= end) {
+          return;
+        }
+        parkUntil(due);
+      } else {
+        due = System.nanoTime();
+        if (due >= end) {
+          return;
+        }
+      }
+
+      long sent = System.nanoTime();
+      try {
+        client.fetchAndProcessData(validDate);
+      } catch (Exception e) {
+        phase.errors.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+      }
+      long from = model == Model.OPEN ? due : sent;
+      phase.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - from));
+    }
+  }
+
+  private static void parkUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /**
+   * Responses so far by status, taken from the client's own response timers, so they are counted
+   * exactly as production metrics count them.
+   */
+  private Map<String, Long> responseCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Timer timer : registry.find(ClientMetrics.RESPONSES).timers()) {
+      String status = timer.getId().getTag("status");
+      String exception = timer.getId().getTag("exception");
+      String key = "None".equals(exception) ? status : status + " (" + exception + ")";
+      counts.merge(key, timer.count(), Long::sum);
+    }
+    return counts;
+  }
+
+  private static final class Phase {
+    private final Recorder recorder = new Recorder(3);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private long elapsedNanos;
+
+    private Map<String, Long> errorCounts() {
+      Map<String, Long> counts = new TreeMap<>();
+      errors.forEach((name, count) -> counts.put(name, count.sum()));
+      return counts;
+    }
+  }
+
+  static final class Report {
+    private final Histogram latencyMicros;
+    private final long elapsedNanos;
+    private final Map<String, Long> responses;
+    private final Map<String, Long> errors;
+
+    Report(Histogram latencyMicros, long elapsedNanos, Map<String, Long> responses, Map<String, Long> errors) {
+      this.latencyMicros = latencyMicros;
+      this.elapsedNanos = elapsedNanos;
+      this.responses = responses;
+      this.errors = errors;
+    }
+
+    Histogram getLatencyMicros() {
+      return latencyMicros;
+    }
+
+    Map<String, Long> getResponses() {
+      return responses;
+    }
+
+    Map<String, Long> getErrors() {
+      return errors;
+    }
+
+    void print(PrintStream out) {
+      long requests = latencyMicros.getTotalCount();
+      out.printf("requests=%d elapsed=%.1fs throughput=%.1f/s%n", requests, elapsedNanos / 1e9,
+        requests / (elapsedNanos / 1e9));
+      out.printf("latency(ms) min=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f p99.99=%.3f max=%.3f%n",
+        millis(latencyMicros.getMinValue()),
+        millis(latencyMicros.getValueAtPercentile(50)),
+        millis(latencyMicros.getValueAtPercentile(90)),
+        millis(latencyMicros.getValueAtPercentile(99)),
+        millis(latencyMicros.getValueAtPercentile(99.9)),
+        millis(latencyMicros.getValueAtPercentile(99.99)),
+        millis(latencyMicros.getMaxValue()));
+      out.println("responses " + format(responses));
+      out.println("errors " + format(errors));
+    }
+
+    private static double millis(long micros) {
+      return micros / 1000.0;
+    }
+
+    private static String format(Map<String, Long> counts) {
+      if (counts.isEmpty()) {
+        return "none";
+      }
+      StringBuilder result = new StringBuilder();
+      counts.forEach((name, count) -> result.append(result.length() == 0 ? "" : " ").append(name).append('=').append(count));
+      return result.toString();
+    }
+  }
+
+  /**
+   * {@code load [--url=http://localhost:8080] [--concurrency=16] [--rate=0] [--duration=30] [--warmup=5]
+   * [--model=closed|open] [--validDate=...]}, with durations in seconds and the rate in requests per second
+   * (0 for as fast as the workers can go).
+   */
+  public static void main(String[] args) throws InterruptedException, IOException {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+      }
+      int split = arg.indexOf('=');
+      options.put(arg.substring(2, split), arg.substring(split + 1));
+    }
+
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+    Model model = Model.valueOf(options.getOrDefault("model", "closed").toUpperCase());
+    LoadGenerator generator = new LoadGenerator(
+      options.getOrDefault("url", "http://localhost:8080"),
+      options.getOrDefault("validDate", LocalDateTime.now().toString()),
+      concurrency,
+      Double.parseDouble(options.getOrDefault("rate", "0")),
+      Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+      Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5"))),
+      model);
+
+    // the synchronous client shares Unirest's connection pool, which allows 20 connections per route by default
+    Unirest.setConcurrency(Math.max(200, concurrency), concurrency);
+
+    System.out.printf("model=%s concurrency=%d rate=%s duration=%ss warmup=%ss%n", model.name().toLowerCase(),
+      concurrency, options.getOrDefault("rate", "0"), options.getOrDefault("duration", "30"),
+      options.getOrDefault("warmup", "5"));
+    try {
+      generator.run().print(System.out);
+    } finally {
+      Unirest.shutdown();
+    }
+  }
+}
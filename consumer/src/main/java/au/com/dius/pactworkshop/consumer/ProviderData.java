@@ -0,0 +1,28 @@
+package au.com.dius.pactworkshop.consumer;
+
+/**
+ * The provider's data as last pushed on /provider/events. Versions only ever increase, so a higher
+ * version is always the more recent state.
+ */
+public final class ProviderData {
+  private final long version;
+  private final int dataCount;
+
+  ProviderData(long version, int dataCount) {
+    this.version = version;
+    this.dataCount = dataCount;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int getDataCount() {
+    return dataCount;
+  }
+
+  @Override
+  public String toString() {
+    return "{version=" + version + ", dataCount=" + dataCount + "}";
+  }
+}
@@ -0,0 +1,157 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls {@code count} and {@code validDate} out of provider responses token by token, without
+ * building a tree. Other values are skipped without being materialised, and a single body is not
+ * read any further once both fields have been seen. Bodies encoded as CBOR or Smile produce the
+ * same tokens and are read the same way.
+ */
+final class ProviderJsonParser {
+  static final String CBOR = "application/cbor";
+  static final String SMILE = "application/x-jackson-smile";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final JsonFactory CBOR_FACTORY = new CBORFactory();
+  private static final JsonFactory SMILE_FACTORY = new SmileFactory();
+
+  private ProviderJsonParser() { }
+
+  /**
+   * Parses a JSON /provider.json body.
+   */
+  static Fields parse(InputStream body) throws IOException {
+    return parse(body, null);
+  }
+
+  /**
+   * Parses a /provider.json body in the encoding given by its Content-Type, JSON unless it is CBOR
+   * or Smile.
+   */
+  static Fields parse(InputStream body, String contentType) throws IOException {
+    try (JsonParser parser = factoryFor(contentType).createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected the provider response to be a JSON object");
+      }
+      return readObject(parser, true);
+    }
+  }
+
+  /**
+   * Parses a /provider/batch body. Items the provider reported an error for are returned as null.
+   */
+  static List<Fields> parseBatch(InputStream body) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new JsonParseException(parser, "Expected the batch response to be a JSON array");
+      }
+      List<Fields> items = new ArrayList<>();
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        items.add(readObject(parser, false));
+      }
+      return items;
+    }
+  }
+
+  /**
+   * Parses the data of a /provider/events event, {@code {"version":..,"count":..}}.
+   */
+  static ProviderData parseEvent(String data) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected the event data to be a JSON object");
+      }
+      long version = -1;
+      int count = 0;
+      boolean hasCount = false;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        if ("version".equals(name)) {
+          version = parser.getLongValue();
+        } else if ("count".equals(name)) {
+          count = parser.getIntValue();
+          hasCount = true;
+        } else {
+          parser.skipChildren();
+        }
+      }
+      if (version < 0 || !hasCount) {
+        throw new JsonParseException(parser, "Event is missing version or count");
+      }
+      return new ProviderData(version, count);
+    }
+  }
+
+  private static JsonFactory factoryFor(String contentType) {
+    if (contentType != null) {
+      if (contentType.startsWith(SMILE)) {
+        return SMILE_FACTORY;
+      } else if (contentType.startsWith(CBOR)) {
+        return CBOR_FACTORY;
+      }
+    }
+    return JSON_FACTORY;
+  }
+
+  private static Fields readObject(JsonParser parser, boolean stopEarly) throws IOException {
+    int count = 0;
+    boolean hasCount = false;
+    String validDate = null;
+    boolean error = false;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      parser.nextToken();
+      if ("count".equals(name)) {
+        count = parser.getIntValue();
+        hasCount = true;
+      } else if ("validDate".equals(name)) {
+        validDate = parser.getText();
+      } else if ("error".equals(name)) {
+        error = true;
+        parser.skipChildren();
+      } else {
+        parser.skipChildren();
+      }
+
+      if (stopEarly && hasCount && validDate != null) {
+        return new Fields(count, validDate);
+      }
+    }
+
+    if (error) {
+      return null;
+    }
+    if (!hasCount || validDate == null) {
+      throw new JsonParseException(parser, "Provider response is missing count or validDate");
+    }
+    return new Fields(count, validDate);
+  }
+
+  static final class Fields {
+    final int count;
+    final String validDate;
+
+    private Fields(int count, String validDate) {
+      this.count = count;
+      this.validDate = validDate;
+    }
+
+    @Override
+    public String toString() {
+      return "{count=" + count + ", validDate=" + validDate + "}";
+    }
+  }
+}
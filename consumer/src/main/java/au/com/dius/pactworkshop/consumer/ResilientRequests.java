@@ -0,0 +1,435 @@
+package au.com.dius.pactworkshop.consumer;
+
+import au.com.dius.pactworkshop.tracing.Span;
+import au.com.dius.pactworkshop.tracing.Tracer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends each /provider.json call to one of several provider endpoints and bounds how long it can take.
+ * <ul>
+ *   <li>Endpoints are picked by the power of two random choices, preferring the one with the lower
+ *   recent latency times outstanding requests. Latencies decay over {@link #LATENCY_DECAY}, so an
+ *   endpoint that was slow a while ago is tried again.</li>
+ *   <li>Each endpoint has a {@link CircuitBreaker}; connection failures, timeouts and 5xx responses
+ *   count against it.</li>
+ *   <li>With hedging on, a call that has not completed after the p95 of recent latencies is also sent
+ *   to another endpoint, and the first healthy answer wins. A call that fails is retried on another
+ *   endpoint straight away. Either way a call makes at most {@link #MAX_ATTEMPTS} requests.</li>
+ *   <li>A call that has not completed by its deadline fails with a {@link TimeoutException} and its
+ *   outstanding requests are cancelled.</li>
+ * </ul>
+ * A call decides its outcome under its own lock, but completes its future only after releasing it,
+ * on the completion executor, so that dependent stages never hold up the timer or the other attempt.
+ */
+final class ResilientRequests {
+  static final int MAX_ATTEMPTS = 2;
+  static final Duration LATENCY_DECAY = Duration.ofSeconds(10);
+  /**
+   * Latencies needed before the hedging delay follows their p95 instead of the configured initial delay.
+   */
+  static final int MIN_LATENCY_SAMPLES = 100;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResilientRequests.class);
+  private static final long LATENCY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The outcome of a single request: its status and the result it was processed into.
+   */
+  static final class Answer {
+    final int status;
+    final List<Object> result;
+
+    Answer(int status, List<Object> result) {
+      this.status = status;
+      this.result = result;
+    }
+  }
+
+  private final List<Endpoint> endpoints = new ArrayList<>();
+  private final Sender send;
+  private final Tracer tracer;
+  private final Executor completions;
+  private final long initialHedgeDelayNanos;
+  private final LongSupplier nanoTime;
+  private final Recorder latencies = new Recorder(3);
+  private final Histogram latencyWindow = new Histogram(3);
+  private volatile long hedgeDelayNanos;
+  private long latencyRefreshedAt;
+  private volatile ScheduledExecutorService timer;
+
+  /**
+   * Sends one request for a validDate to the endpoint with the given base URL, as part of {@code span}.
+   */
+  interface Sender {
+    CompletableFuture<Answer> send(String url, String dateTime, Span span);
+  }
+
+  /**
+   * @param initialHedgeDelay how long to wait before hedging until enough latencies have been seen,
+   *                          or null to never hedge
+   * @param tracer traces each call, with a child span per request
+   * @param completions runs the completion of each call, and so its dependent stages
+   */
+  ResilientRequests(List<String> urls, Sender send, Duration initialHedgeDelay, int breakerThreshold,
+                    Duration breakerOpenDuration, Tracer tracer, Executor completions, LongSupplier nanoTime) {
+    for (String url : urls) {
+      CircuitBreaker breaker = breakerThreshold > 0
+        ? new CircuitBreaker(breakerThreshold, breakerOpenDuration, nanoTime)
+        : CircuitBreaker.disabled();
+      endpoints.add(new Endpoint(url, breaker));
+    }
+    this.send = send;
+    this.tracer = tracer;
+    this.completions = completions;
+    this.initialHedgeDelayNanos = initialHedgeDelay == null ? -1 : initialHedgeDelay.toNanos();
+    this.hedgeDelayNanos = initialHedgeDelayNanos;
+    this.nanoTime = nanoTime;
+    this.latencyRefreshedAt = nanoTime.getAsLong();
+  }
+
+  /**
+   * Sends one call and completes with the answer that won, so callers can tell error answers from data.
+   */
+  CompletableFuture<Answer> call(String dateTime, Duration deadline) {
+    Call call = new Call(dateTime);
+    call.start(deadline);
+    return call.result;
+  }
+
+  /**
+   * A future that completes like {@code future}, or with a {@link TimeoutException} after {@code deadline}.
+   */
+  <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration deadline) {
+    if (deadline == null) {
+      return future;
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    ScheduledFuture<?> timeout = timer().schedule(
+      () -> result.completeExceptionally(new TimeoutException("No answer within the deadline of " + deadline)),
+      deadline.toNanos(), TimeUnit.NANOSECONDS);
+    future.whenComplete((value, error) -> {
+      timeout.cancel(false);
+      if (error != null) {
+        result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+      } else {
+        result.complete(value);
+      }
+    });
+    return result;
+  }
+
+  CircuitBreaker.State breakerState(String url) {
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.url.equals(url)) {
+        return endpoint.breaker.getState();
+      }
+    }
+    throw new IllegalArgumentException("Unknown endpoint " + url);
+  }
+
+  void close() {
+    ScheduledExecutorService current = timer;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+
+  private ScheduledExecutorService timer() {
+    ScheduledExecutorService current = timer;
+    if (current == null) {
+      synchronized (this) {
+        current = timer;
+        if (current == null) {
+          current = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "provider-request-timer");
+            thread.setDaemon(true);
+            return thread;
+          });
+          timer = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Picks an endpoint whose breaker lets a request through and claims it, preferring endpoints the
+   * call has not tried yet. Null if every breaker is open.
+   */
+  private Endpoint choose(List<Endpoint> tried) {
+    List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+    for (Endpoint endpoint : endpoints) {
+      if (!tried.contains(endpoint) && endpoint.breaker.isAvailable()) {
+        candidates.add(endpoint);
+      }
+    }
+    if (candidates.isEmpty()) {
+      for (Endpoint endpoint : endpoints) {
+        if (endpoint.breaker.isAvailable()) {
+          candidates.add(endpoint);
+        }
+      }
+    }
+    long now = nanoTime.getAsLong();
+    while (!candidates.isEmpty()) {
+      Endpoint chosen = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+      if (candidates.size() > 1) {
+        Endpoint other;
+        do {
+          other = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        } while (other == chosen);
+        if (other.score(now) < chosen.score(now)) {
+          chosen = other;
+        }
+      }
+      if (chosen.breaker.tryAcquire()) {
+        return chosen;
+      }
+      // another call took the probe of a half-open breaker in the meantime
+      candidates.remove(chosen);
+    }
+    return null;
+  }
+
+  private void recordLatency(long nanos) {
+    latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+  }
+
+  /**
+   * The hedging delay: the configured initial delay until {@link #MIN_LATENCY_SAMPLES} latencies
+   * have been seen, then their p95, refreshed at most once a second.
+   */
+  private long hedgeDelayNanos() {
+    long now = nanoTime.getAsLong();
+    if (now - latencyRefreshedAt >= LATENCY_REFRESH_NANOS) {
+      synchronized (latencyWindow) {
+        if (now - latencyRefreshedAt >= LATENCY_REFRESH_NANOS) {
+          latencyRefreshedAt = now;
+          latencyWindow.add(latencies.getIntervalHistogram());
+          if (latencyWindow.getTotalCount() >= MIN_LATENCY_SAMPLES) {
+            hedgeDelayNanos = TimeUnit.MICROSECONDS.toNanos(latencyWindow.getValueAtPercentile(95));
+            latencyWindow.reset();
+          }
+        }
+      }
+    }
+    return hedgeDelayNanos;
+  }
+
+  private static final class Endpoint {
+    private final String url;
+    private final CircuitBreaker breaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile long latencyUpdatedAt;
+
+    private Endpoint(String url, CircuitBreaker breaker) {
+      this.url = url;
+      this.breaker = breaker;
+    }
+
+    /**
+     * Exponentially weighted moving average of the latency, giving the latest request 30% weight.
+     */
+    private void recordLatency(long nanos, long now) {
+      long previous;
+      long updated;
+      do {
+        previous = latencyNanos.get();
+        updated = previous == 0 ? nanos : previous + (long) ((nanos - previous) * 0.3);
+      } while (!latencyNanos.compareAndSet(previous, updated));
+      latencyUpdatedAt = now;
+    }
+
+    private double score(long now) {
+      double decay = Math.exp(-(double) (now - latencyUpdatedAt) / LATENCY_DECAY.toNanos());
+      return latencyNanos.get() * decay * (outstanding.get() + 1);
+    }
+  }
+
+  private final class Call {
+    private final String dateTime;
+    private final Span span;
+    private final CompletableFuture<Answer> result = new CompletableFuture<>();
+    private final List<Endpoint> tried = new ArrayList<>(MAX_ATTEMPTS);
+    private final List<CompletableFuture<Answer>> outstanding = new ArrayList<>(MAX_ATTEMPTS);
+    private final List<ScheduledFuture<?>> timers = new ArrayList<>(2);
+    private Answer lastUnhealthy;
+    private Throwable lastError;
+    // set once settle() has handed out the completion, which may not have run yet
+    private boolean decided;
+    private volatile boolean timedOut;
+
+    private Call(String dateTime) {
+      this.dateTime = dateTime;
+      this.span = tracer.startSpan("provider.json", null);
+    }
+
+    private void start(Duration deadline) {
+      result.whenComplete((value, error) -> finish());
+      boolean launched;
+      synchronized (this) {
+        if (deadline != null) {
+          timers.add(timer().schedule(() -> timeOut(deadline), deadline.toNanos(), TimeUnit.NANOSECONDS));
+        }
+        launched = launch();
+        decided = !launched;
+        long hedgeDelay = !launched || initialHedgeDelayNanos < 0 ? -1 : hedgeDelayNanos();
+        if (hedgeDelay >= 0) {
+          timers.add(timer().schedule(this::hedge, hedgeDelay, TimeUnit.NANOSECONDS));
+        }
+      }
+      if (!launched) {
+        completions.execute(() -> result.completeExceptionally(
+          new IOException("No provider endpoint is available, all circuit breakers are open")));
+      }
+    }
+
+    private void timeOut(Duration deadline) {
+      synchronized (this) {
+        if (decided) {
+          return;
+        }
+        decided = true;
+        timedOut = true;
+      }
+      completions.execute(() -> result.completeExceptionally(
+        new TimeoutException("No answer within the deadline of " + deadline)));
+    }
+
+    private synchronized void hedge() {
+      if (!decided && !result.isDone() && tried.size() < MAX_ATTEMPTS && launch()) {
+        LOGGER.debug("event=providerRequestHedged endpoint={}", tried.get(tried.size() - 1).url);
+      }
+    }
+
+    /**
+     * Sends the call to another endpoint. False if no endpoint is available.
+     */
+    private boolean launch() {
+      Endpoint endpoint = choose(tried);
+      if (endpoint == null) {
+        return false;
+      }
+      tried.add(endpoint);
+      endpoint.outstanding.incrementAndGet();
+      long started = nanoTime.getAsLong();
+      Span attemptSpan = span.startChild("attempt").setAttribute("endpoint", endpoint.url)
+        .setAttribute("attempt", tried.size());
+      CompletableFuture<Answer> attempt = send.send(endpoint.url, dateTime, attemptSpan);
+      outstanding.add(attempt);
+      attempt.whenComplete((answer, error) -> {
+        if (answer != null) {
+          attemptSpan.setAttribute("http.status", answer.status);
+        } else {
+          attemptSpan.recordException(error instanceof CompletionException ? error.getCause() : error);
+        }
+        attemptSpan.end();
+        completed(endpoint, attempt, started, answer, error);
+      });
+      return true;
+    }
+
+    private void completed(Endpoint endpoint, CompletableFuture<Answer> attempt, long started, Answer answer,
+                           Throwable error) {
+      Runnable completion = settle(endpoint, attempt, started, answer, error);
+      if (completion != null) {
+        completions.execute(completion);
+      }
+    }
+
+    /**
+     * Accounts for a finished attempt and decides what the call does next. Returns the completion of
+     * the call if this attempt decided it, or null if it is still open or was already decided.
+     */
+    private synchronized Runnable settle(Endpoint endpoint, CompletableFuture<Answer> attempt, long started,
+                                         Answer answer, Throwable error) {
+      endpoint.outstanding.decrementAndGet();
+      outstanding.remove(attempt);
+      Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+      long now = nanoTime.getAsLong();
+      if (cause instanceof CancellationException) {
+        // the time it has taken so far is a lower bound on the endpoint's latency, and without it an
+        // endpoint that always loses to the hedge would keep being picked first
+        endpoint.recordLatency(now - started, now);
+        if (timedOut) {
+          // a request still outstanding at the deadline counts against its endpoint
+          endpoint.breaker.onFailure();
+        } else {
+          endpoint.breaker.onCancelled();
+        }
+        return null;
+      }
+
+      if (answer != null) {
+        endpoint.recordLatency(now - started, now);
+        recordLatency(now - started);
+      }
+      if (answer != null && answer.status < 500) {
+        endpoint.breaker.onSuccess();
+        if (decided) {
+          return null;
+        }
+        decided = true;
+        return () -> result.complete(answer);
+      }
+
+      endpoint.breaker.onFailure();
+      if (answer != null) {
+        lastUnhealthy = answer;
+      } else {
+        lastError = cause;
+      }
+      LOGGER.debug("event=providerRequestFailed endpoint={} status={}", endpoint.url,
+        answer == null ? null : answer.status, cause);
+      if (decided || result.isDone() || !outstanding.isEmpty()) {
+        return null;
+      }
+      if (tried.size() < MAX_ATTEMPTS && launch()) {
+        return null;
+      }
+      // out of attempts: an error response is still an answer, as it would be without this layer
+      decided = true;
+      Answer unhealthy = lastUnhealthy;
+      Throwable failure = lastError;
+      return unhealthy != null ? () -> result.complete(unhealthy) : () -> result.completeExceptionally(failure);
+    }
+
+    private void finish() {
+      List<CompletableFuture<Answer>> abandoned;
+      List<ScheduledFuture<?>> pending;
+      synchronized (this) {
+        abandoned = new ArrayList<>(outstanding);
+        pending = new ArrayList<>(timers);
+        span.setAttribute("attempts", tried.size());
+      }
+      pending.forEach(timer -> timer.cancel(false));
+      abandoned.forEach(attempt -> attempt.cancel(true));
+      if (timedOut) {
+        span.setAttribute("error", TimeoutException.class.getSimpleName());
+      }
+      span.end();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package au.com.dius.pactworkshop.consumer;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CircuitBreakerTest {
+  private final AtomicLong now = new AtomicLong();
+  private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(5), now::get);
+
+  @Test
+  public void opensAfterTheThresholdOfFailuresInARow() {
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onSuccess();
+    breaker.onFailure();
+    breaker.onFailure();
+
+    assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+
+    breaker.onFailure();
+
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+    assertThat(breaker.tryAcquire(), is(false));
+  }
+
+  @Test
+  public void letsASingleProbeThroughOnceTheOpenDurationHasPassed() {
+    open();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+    assertThat(breaker.isAvailable(), is(true));
+    assertThat(breaker.tryAcquire(), is(true));
+    assertThat(breaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    assertThat(breaker.isAvailable(), is(false));
+    assertThat(breaker.tryAcquire(), is(false));
+
+    breaker.onSuccess();
+
+    assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+    assertThat(breaker.tryAcquire(), is(true));
+  }
+
+  @Test
+  public void reopensWhenTheProbeFails() {
+    open();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    breaker.tryAcquire();
+    breaker.onFailure();
+
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+
+    assertThat(breaker.tryAcquire(), is(false));
+  }
+
+  @Test
+  public void aCancelledProbeLetsAnotherOneThrough() {
+    open();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    breaker.tryAcquire();
+    breaker.onCancelled();
+
+    assertThat(breaker.tryAcquire(), is(true));
+  }
+
+  private void open() {
+    for (int i = 0; i < 3; i++) {
+      breaker.tryAcquire();
+      breaker.onFailure();
+    }
+  }
+}
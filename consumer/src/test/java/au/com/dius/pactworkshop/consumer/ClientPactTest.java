@@ -1,5 +1,6 @@
 package au.com.dius.pactworkshop.consumer;
 
+import au.com.dius.pact.consumer.dsl.PactDslJsonArray;
 import au.com.dius.pact.consumer.dsl.PactDslJsonBody;
 import au.com.dius.pact.consumer.dsl.PactDslWithProvider;
 import au.com.dius.pact.consumer.junit.PactProviderRule;
@@ -13,6 +14,8 @@ import org.junit.Test;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -65,6 +68,42 @@ public class ClientPactTest {
     assertThat(result.get(1), is(dateResult));
   }
 
+  @Pact(provider = "Our Provider", consumer = "Our Little Consumer")
+  public RequestResponsePact pactForDefaultEncoding(PactDslWithProvider builder) {
+    dateTime = LocalDateTime.now();
+    dateResult = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    return builder
+      .given("data count > 0")
+      .uponReceiving("a request for json data that only accepts json")
+      .path("/provider.json")
+      .method("GET")
+      .query("validDate=" + dateTime.toString())
+      .headers("Accept", "application/json")
+      .willRespondWith()
+      .status(200)
+      .headers(Collections.singletonMap("Content-Type", "application/json"))
+      .body(
+          new PactDslJsonBody()
+              .stringValue("test", "NO")
+              .datetime("validDate", "yyyy-MM-dd'T'HH:mm:ssXX", dateResult.toInstant())
+              .integerType("count", 100)
+      )
+      .toPact();
+  }
+
+  @Test
+  @PactVerification(value = "Our Provider", fragment = "pactForDefaultEncoding")
+  public void receivesJsonByDefault() throws UnirestException {
+    // The client asks for JSON unless binary encodings are switched on
+    Client client = new Client(provider.getUrl());
+
+    List<Object> result = client.fetchAndProcessData(dateTime.toString());
+
+    assertThat(result, hasSize(2));
+    assertThat(result.get(0), is(1));
+    assertThat(result.get(1), is(dateResult));
+  }
+
   @Pact(provider = "Our Provider", consumer = "Our Little Consumer")
   public RequestResponsePact pactForMissingDateParameter(PactDslWithProvider builder) {
     return builder
@@ -151,4 +190,51 @@ public class ClientPactTest {
     assertThat(result.get(0), is(0));
     assertThat(result.get(1), nullValue());
   }
+
+  @Pact(provider = "Our Provider", consumer = "Our Little Consumer")
+  public RequestResponsePact pactForBatch(PactDslWithProvider builder) {
+    dateTime = LocalDateTime.now();
+    dateResult = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    return builder
+            .given("data count > 0")
+            .uponReceiving("a batch request for json data")
+            .path("/provider/batch")
+            .method("POST")
+            .headers("Content-Type", "application/json")
+            .body(
+                new PactDslJsonArray()
+                    .stringValue(dateTime.toString())
+                    .stringValue("This is not a date")
+            )
+            .willRespondWith()
+            .status(200)
+            .body(
+                new PactDslJsonArray()
+                    .object()
+                        .stringValue("test", "NO")
+                        .datetime("validDate", "yyyy-MM-dd'T'HH:mm:ssXX", dateResult.toInstant())
+                        .integerType("count", 100)
+                    .closeObject()
+                    .object()
+                        .stringValue("error", "'This is not a date' is not a date")
+                    .closeObject()
+            )
+            .toPact();
+  }
+
+  @Test
+  @PactVerification(value = "Our Provider", fragment = "pactForBatch")
+  public void batchOfDates() throws UnirestException {
+    // Set up our HTTP client class
+    Client client = new Client(provider.getUrl());
+
+    // Invoke out client
+    List<List<Object>> result = client.fetchAndProcessBatch(Arrays.asList(dateTime.toString(), "This is not a date"));
+
+    assertThat(result, hasSize(2));
+    assertThat(result.get(0).get(0), is(1));
+    assertThat(result.get(0).get(1), is(dateResult));
+    assertThat(result.get(1).get(0), is(0));
+    assertThat(result.get(1).get(1), nullValue());
+  }
 }
@@ -0,0 +1,151 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+
+public class ClientResilienceTest {
+  private static final String BODY = "{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}";
+
+  @Rule
+  public WireMockRule healthy = new WireMockRule(8089);
+
+  @Rule
+  public WireMockRule unhealthy = new WireMockRule(8090);
+
+  @Test
+  public void hedgedRequestsAreNotHeldUpByASlowProvider() throws Exception {
+
+    healthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(BODY)));
+    unhealthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(BODY)
+        .withFixedDelay(2000)));
+
+    try (Client client = Client.builder(Arrays.asList("http://localhost:8090", "http://localhost:8089"))
+      .hedge(Duration.ofMillis(50))
+      .build()) {
+      long slowest = 0;
+      for (int i = 0; i < 50; i++) {
+        long started = System.nanoTime();
+        List<Object> data = client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+        slowest = Math.max(slowest, System.nanoTime() - started);
+
+        assertThat(data.get(0), is(1));
+      }
+
+      assertThat(TimeUnit.NANOSECONDS.toMillis(slowest), is(lessThan(1000L)));
+    }
+  }
+
+  @Test
+  public void callsCompleteOnTheCompletionExecutor() throws Exception {
+
+    healthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(BODY)
+        .withFixedDelay(200)));
+
+    ExecutorService completions = Executors.newSingleThreadExecutor(task -> new Thread(task, "completions"));
+    try (Client client = Client.builder("http://localhost:8089")
+      .completionExecutor(completions)
+      .build()) {
+      String thread = client.fetchAndProcessDataAsync(LocalDateTime.now().toString())
+        .thenApply(data -> Thread.currentThread().getName())
+        .get(10, TimeUnit.SECONDS);
+
+      assertThat(thread, startsWith("completions"));
+    } finally {
+      completions.shutdownNow();
+    }
+  }
+
+  @Test
+  public void callsFailWithATimeoutOnceTheirDeadlineHasPassed() throws Exception {
+
+    unhealthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(BODY)
+        .withFixedDelay(2000)));
+
+    try (Client client = new Client("http://localhost:8090")) {
+      long started = System.nanoTime();
+      try {
+        client.fetchAndProcessDataAsync(LocalDateTime.now().toString(), Duration.ofMillis(100)).get(10, TimeUnit.SECONDS);
+        fail("Expected the call to time out");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause(), is(instanceOf(TimeoutException.class)));
+      }
+
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), is(lessThan(1000L)));
+    }
+  }
+
+  @Test
+  public void failingProvidersAreSkippedOnceTheirCircuitBreakerOpens() throws Exception {
+
+    healthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(BODY)));
+    unhealthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(500)));
+
+    try (Client client = Client.builder(Arrays.asList("http://localhost:8090", "http://localhost:8089"))
+      .circuitBreaker(3, Duration.ofMinutes(1))
+      .build()) {
+      for (int i = 0; i < 20; i++) {
+        List<Object> data = client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+
+        assertThat(data, hasSize(2));
+        assertThat(data.get(0), is(1));
+      }
+    }
+
+    assertThat(unhealthy.findAll(getRequestedFor(urlPathEqualTo("/provider.json"))).size(), is(lessThanOrEqualTo(3)));
+  }
+
+  @Test
+  public void callsFailFastWhenEveryCircuitBreakerIsOpen() throws Exception {
+
+    unhealthy.stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(500)));
+
+    try (Client client = Client.builder("http://localhost:8090")
+      .circuitBreaker(2, Duration.ofMinutes(1))
+      .build()) {
+      // both attempts of the first call fail, which opens the breaker
+      client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+
+      assertThat(client.breakerState("http://localhost:8090"), is(CircuitBreaker.State.OPEN));
+      try {
+        client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+        fail("Expected the call to be rejected");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause(), is(instanceOf(IOException.class)));
+      }
+    }
+
+    assertThat(unhealthy.findAll(getRequestedFor(urlPathEqualTo("/provider.json"))), hasSize(2));
+  }
+}
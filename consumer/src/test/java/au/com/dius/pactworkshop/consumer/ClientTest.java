@@ -1,25 +1,46 @@
 package au.com.dius.pactworkshop.consumer;
 
+import au.com.dius.pactworkshop.tracing.Span;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.mashape.unirest.http.exceptions.UnirestException;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class ClientTest {
 
@@ -45,4 +66,253 @@ public class ClientTest {
     assertThat(data.get(1), is(equalTo(OffsetDateTime.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")))));
   }
 
+  @Test(expected = UnirestException.class)
+  public void rejectsABatchAnswerWithTheWrongNumberOfItems() throws UnirestException {
+
+    stubFor(post(urlPathEqualTo("/provider/batch"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("[{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}]")));
+
+    new Client("http://localhost:8089").fetchAndProcessBatch(Arrays.asList("2013-08-16T15:31:20", "2013-08-17T15:31:20"));
+  }
+
+  @Test
+  public void reusesThePreviousResultWhenTheProviderAnswersNotModified() throws UnirestException {
+
+    String date = "2013-08-16T15:31:20+1000";
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withHeader("ETag", "\"1-64-520dbdb8\"")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"" + date + "\", \"count\": 100}")));
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .withHeader("If-None-Match", matching("\"1-64-520dbdb8\""))
+      .willReturn(aResponse().withStatus(304)));
+
+    Client client = new Client("http://localhost:8089");
+    List<Object> first = client.fetchAndProcessData(LocalDateTime.now().toString());
+    List<Object> second = client.fetchAndProcessData(LocalDateTime.now().toString());
+
+    assertThat(second, is(sameInstance(first)));
+    verify(getRequestedFor(urlPathEqualTo("/provider.json")).withHeader("If-None-Match", matching("\"1-64-520dbdb8\"")));
+  }
+
+  @Test
+  public void canProcessTheJsonPayloadFromTheProviderAsynchronously() throws Exception {
+
+    String date = "2013-08-16T15:31:20+1000";
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .withQueryParam("validDate", matching(".+"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"" + date + "\", \"count\": 100}")));
+
+    try (Client client = Client.builder("http://localhost:8089").maxConnections(4).build()) {
+      List<Object> data = client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+
+      assertThat(data, hasSize(2));
+      assertThat(data.get(0), is(1));
+      assertThat(data.get(1), is(equalTo(OffsetDateTime.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")))));
+    }
+  }
+
+  @Test
+  public void asynchronousRequestsReturnNoDataWhenTheProviderHasNone() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(404)));
+
+    try (Client client = new Client("http://localhost:8089")) {
+      List<Object> data = client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+
+      assertThat(data, hasSize(2));
+      assertThat(data.get(0), is(0));
+      assertThat(data.get(1), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void coalescesAndCachesLookupsOfTheSameValidDate() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withFixedDelay(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}")));
+
+    try (Client client = Client.builder("http://localhost:8089").cache(Duration.ofMinutes(1), 100).build()) {
+      CompletableFuture<List<Object>> first = client.fetchAndProcessDataAsync("2020-01-01T10:00");
+      CompletableFuture<List<Object>> second = client.fetchAndProcessDataAsync("2020-01-01T10:00:00");
+      List<Object> third = client.fetchAndProcessData("2020-01-01T10:00");
+
+      assertThat(first.get(10, TimeUnit.SECONDS), is(sameInstance(third)));
+      assertThat(second.get(10, TimeUnit.SECONDS), is(sameInstance(third)));
+      verify(1, getRequestedFor(urlPathEqualTo("/provider.json")));
+      assertThat(client.cacheStats().missCount(), is(1L));
+      assertThat(client.cacheStats().hitCount(), is(2L));
+    }
+  }
+
+  @Test
+  public void doesNotCacheAnswersWithoutData() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(404)));
+
+    try (Client client = Client.builder("http://localhost:8089").cache(Duration.ofMinutes(1), 100).build()) {
+      List<Object> first = client.fetchAndProcessData("2020-01-01T10:00:00");
+      List<Object> second = client.fetchAndProcessData("2020-01-01T10:00:00");
+
+      assertThat(first.get(1), is(nullValue()));
+      assertThat(second.get(1), is(nullValue()));
+      verify(2, getRequestedFor(urlPathEqualTo("/provider.json")));
+    }
+  }
+
+  @Test
+  public void sendsTheValidDateAsWrittenWhenCaching() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(400)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"error\": \"validDate is not a date\"}")));
+
+    try (Client client = Client.builder("http://localhost:8089").cache(Duration.ofMinutes(1), 100).build()) {
+      client.fetchAndProcessData(" 2020-01-01T10:00:00 ");
+      client.fetchAndProcessData("2020-01-01T10:00:00");
+
+      verify(1, getRequestedFor(urlPathEqualTo("/provider.json"))
+        .withQueryParam("validDate", WireMock.equalTo(" 2020-01-01T10:00:00 ")));
+      verify(1, getRequestedFor(urlPathEqualTo("/provider.json"))
+        .withQueryParam("validDate", WireMock.equalTo("2020-01-01T10:00:00")));
+    }
+  }
+
+  @Test
+  public void decodesSmileWhenAskingForBinaryEncodings() throws Exception {
+
+    String date = "2013-08-16T15:31:20+1000";
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .withHeader("Accept", containing("application/x-jackson-smile"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/x-jackson-smile")
+        .withBody(encode(new SmileFactory(), date, 100))));
+
+    List<Object> data = Client.builder("http://localhost:8089").acceptBinary(true).build()
+      .fetchAndProcessData(LocalDateTime.now().toString());
+
+    assertThat(data.get(0), is(1));
+    assertThat(data.get(1), is(equalTo(OffsetDateTime.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")))));
+  }
+
+  @Test
+  public void decompressesGzippedResponsesAsynchronously() throws Exception {
+
+    String date = "2013-08-16T15:31:20+1000";
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+      out.write(("{\"test\": \"NO\", \"validDate\": \"" + date + "\", \"count\": 100}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .withHeader("Accept-Encoding", containing("gzip"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withHeader("Content-Encoding", "gzip")
+        .withBody(gzipped.toByteArray())));
+
+    try (Client client = new Client("http://localhost:8089")) {
+      List<Object> data = client.fetchAndProcessDataAsync(LocalDateTime.now().toString()).get(10, TimeUnit.SECONDS);
+
+      assertThat(data.get(0), is(1));
+      assertThat(data.get(1), is(equalTo(OffsetDateTime.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")))));
+    }
+  }
+
+  @Test
+  public void subscriptionPassesOnEachNewVersionOnce() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider/events"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "text/event-stream")
+        .withBody("retry: 60000\n\n"
+          + "id: 1\nevent: data\ndata: {\"version\":1,\"count\":10}\n\n"
+          + ":heartbeat\n\n"
+          + "id: 1\nevent: data\ndata: {\"version\":1,\"count\":10}\n\n"
+          + "id: 2\nevent: data\ndata: {\"version\":2,\"count\":20}\n\n")));
+
+    List<ProviderData> received = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(2);
+    try (Client client = new Client("http://localhost:8089");
+         DataSubscription subscription = client.subscribe(data -> {
+           received.add(data);
+           latch.countDown();
+         })) {
+      assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+
+      assertThat(received, hasSize(2));
+      assertThat(received.get(0).getVersion(), is(1L));
+      assertThat(subscription.latest().getVersion(), is(2L));
+      assertThat(subscription.latest().getDataCount(), is(20));
+    }
+    verify(getRequestedFor(urlPathEqualTo("/provider/events")).withHeader("Accept", containing("text/event-stream")));
+  }
+
+  @Test
+  public void sampledCallsSendTheirTraceToTheProvider() throws UnirestException {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}")));
+
+    Client client = Client.builder("http://localhost:8089").traceSampleRate(1).build();
+    client.fetchAndProcessData(null);
+
+    Span trace = client.getTracer().recent().get(0);
+    verify(getRequestedFor(urlPathEqualTo("/provider.json"))
+      .withHeader("traceparent", matching("00-" + trace.getTraceId() + "-" + trace.getSpanId() + "-01")));
+    assertThat(trace.getAttributes().get("http.status"), is("200"));
+    assertThat(trace.getChildren().get(0).getName(), is("parse"));
+  }
+
+  @Test
+  public void unsampledCallsLeaveSamplingToTheProvider() throws UnirestException {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}")));
+
+    new Client("http://localhost:8089").fetchAndProcessData(null);
+
+    verify(getRequestedFor(urlPathEqualTo("/provider.json"))
+      .withoutHeader("traceparent"));
+  }
+
+  private static byte[] encode(JsonFactory factory, String validDate, int count) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = factory.createGenerator(out)) {
+      generator.writeStartObject();
+      generator.writeStringField("test", "NO");
+      generator.writeStringField("validDate", validDate);
+      generator.writeNumberField("count", count);
+      generator.writeEndObject();
+    }
+    return out.toByteArray();
+  }
 }
@@ -0,0 +1,56 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+
+public class LoadGeneratorTest {
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(8089);
+
+  @Test
+  public void reportsLatencyAndResponsesByStatusForAClosedLoad() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "application/json")
+        .withBody("{\"test\": \"NO\", \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100}")));
+
+    LoadGenerator.Report report = new LoadGenerator("http://localhost:8089", LocalDateTime.now().toString(), 2, 0,
+      Duration.ofSeconds(1), Duration.ZERO, LoadGenerator.Model.CLOSED).run();
+
+    long requests = report.getLatencyMicros().getTotalCount();
+    assertThat(requests, is(greaterThan(0L)));
+    assertThat(report.getResponses(), hasKey("200"));
+    assertThat(report.getResponses().values().stream().mapToLong(Long::longValue).sum(), is(equalTo(requests)));
+    assertThat(report.getErrors().isEmpty(), is(true));
+  }
+
+  @Test
+  public void sendsRequestsAtTheTargetRateInTheOpenModelAndExcludesTheWarmUp() throws Exception {
+
+    stubFor(get(urlPathEqualTo("/provider.json"))
+      .willReturn(aResponse().withStatus(404)));
+
+    LoadGenerator.Report report = new LoadGenerator("http://localhost:8089", LocalDateTime.now().toString(), 4, 20,
+      Duration.ofSeconds(1), Duration.ofMillis(500), LoadGenerator.Model.OPEN).run();
+
+    assertThat(report.getLatencyMicros().getTotalCount(), is(equalTo(20L)));
+    assertThat(report.getResponses().get("404"), is(equalTo(20L)));
+  }
+}
@@ -0,0 +1,67 @@
+package au.com.dius.pactworkshop.consumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ProviderJsonParserTest {
+
+  @Test
+  public void skipsUnrelatedValuesAndStopsOnceBothFieldsAreRead() throws IOException {
+    // everything after count is deliberately not valid JSON; it must never be read
+    ProviderJsonParser.Fields fields = ProviderJsonParser.parse(stream(
+      "{\"padding\": {\"a\": [1, 2, {\"count\": 5}]}, \"validDate\": \"2013-08-16T15:31:20+1000\", \"count\": 100, !!!"));
+
+    assertThat(fields.count, is(100));
+    assertThat(fields.validDate, is("2013-08-16T15:31:20+1000"));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void failsWhenAFieldIsMissing() throws IOException {
+    ProviderJsonParser.parse(stream("{\"test\": \"NO\", \"count\": 100}"));
+  }
+
+  @Test
+  public void parsesBatchItemsAndErrors() throws IOException {
+    List<ProviderJsonParser.Fields> items = ProviderJsonParser.parseBatch(stream(
+      "[{\"test\":\"NO\",\"validDate\":\"2013-08-16T15:31:20+1000\",\"count\":100,\"extra\":[1]},{\"error\":\"'x' is not a date\"}]"));
+
+    assertThat(items, hasSize(2));
+    assertThat(items.get(0).count, is(100));
+    assertThat(items.get(1), is(nullValue()));
+  }
+
+  @Test
+  public void readsCborBodiesByContentType() throws IOException {
+    ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+    try (JsonGenerator generator = new CBORFactory().createGenerator(cbor)) {
+      generator.writeStartObject();
+      generator.writeStringField("test", "NO");
+      generator.writeStringField("validDate", "2013-08-16T15:31:20+1000");
+      generator.writeNumberField("count", 100);
+      generator.writeEndObject();
+    }
+
+    ProviderJsonParser.Fields fields = ProviderJsonParser.parse(new ByteArrayInputStream(cbor.toByteArray()), "application/cbor");
+
+    assertThat(fields.count, is(100));
+    assertThat(fields.validDate, is("2013-08-16T15:31:20+1000"));
+  }
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
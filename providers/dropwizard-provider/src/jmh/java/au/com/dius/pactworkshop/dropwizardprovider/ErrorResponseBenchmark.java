@@ -0,0 +1,83 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.consumer.Client;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.InvalidQueryParameterException;
+import au.com.dius.pactworkshop.providercore.NoDataException;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import au.com.dius.pactworkshop.providercore.QueryParameterRequiredException;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the 400 and 404 answers of /provider.json: in process, through the resource and its
+ * exception mapper, and end to end through {@link Client}, which sees them as empty results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ErrorResponseBenchmark {
+
+  @Param({"missingDate", "invalidDate", "noData"})
+  private String error;
+
+  private DropwizardTestSupport<ServiceConfig> app;
+  private RootResource resource;
+  private Client client;
+  private Optional<String> validDate;
+
+  @Setup
+  public void startProvider() {
+    app = new DropwizardTestSupport<>(MainApplication.class, (String) null,
+      ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+      ConfigOverride.config("server.adminConnectors[0].port", "0"));
+    app.before();
+
+    DataStore dataStore = ((MainApplication) app.getApplication()).getDataStore();
+    dataStore.setDataCount("noData".equals(error) ? 0 : 1000);
+    resource = new RootResource(new ProviderJsonHandler(dataStore), new ProviderJsonMetrics(new SimpleMeterRegistry()));
+    client = new Client("http://localhost:" + app.getLocalPort());
+    validDate = "missingDate".equals(error) ? Optional.empty()
+      : Optional.of("invalidDate".equals(error) ? "16/08/2013 15:31:20" : "2013-08-16T15:31:20");
+  }
+
+  @TearDown
+  public void stopProvider() {
+    app.after();
+  }
+
+  @Benchmark
+  public Response inProcess() {
+    try {
+      return resource.providerJson(validDate, null);
+    } catch (InvalidQueryParameterException e) {
+      return new InvalidQueryParameterExceptionMapper().toResponse(e);
+    } catch (QueryParameterRequiredException e) {
+      return new QueryParameterRequiredExceptionMapper().toResponse(e);
+    } catch (NoDataException e) {
+      return new NoDataExceptionMapper().toResponse(e);
+    }
+  }
+
+  @Benchmark
+  public List<Object> loopback() throws UnirestException {
+    return client.fetchAndProcessData(validDate.orElse(null));
+  }
+}
@@ -0,0 +1,116 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.consumer.Client;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RootResource#providerJson} directly and end to end through {@link Client} against an
+ * embedded server on an ephemeral loopback port. {@code serverType} selects Dropwizard's default thread
+ * pool; virtual threads need the benchmarks to run on Java 21, so they are only measured when asked
+ * for with {@code -PjmhParams=serverType=default,virtual-threads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RootResourceBenchmark {
+
+  @Param({"default"})
+  private String serverType;
+
+  private DropwizardTestSupport<ServiceConfig> app;
+  private RootResource resource;
+  private Client client;
+  private String validDate;
+
+  @Setup
+  public void startProvider() {
+    app = new DropwizardTestSupport<>(MainApplication.class, (String) null,
+      ConfigOverride.config("server.type", serverType),
+      ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+      ConfigOverride.config("server.adminConnectors[0].port", "0"));
+    app.before();
+
+    DataStore dataStore = ((MainApplication) app.getApplication()).getDataStore();
+    dataStore.setDataCount(1000);
+    resource = new RootResource(new ProviderJsonHandler(dataStore), new ProviderJsonMetrics(new SimpleMeterRegistry()));
+    client = new Client("http://localhost:" + app.getLocalPort());
+    validDate = LocalDateTime.now().toString();
+  }
+
+  @TearDown
+  public void stopProvider() {
+    app.after();
+  }
+
+  @Benchmark
+  public Response inProcess() {
+    return resource.providerJson(Optional.of(validDate), UnconditionalRequest.INSTANCE);
+  }
+
+  @Benchmark
+  public List<Object> loopback() throws UnirestException {
+    return client.fetchAndProcessData(validDate);
+  }
+
+  /**
+   * A request without preconditions, so every call renders the full response.
+   */
+  private static final class UnconditionalRequest implements Request {
+    private static final Request INSTANCE = new UnconditionalRequest();
+
+    @Override
+    public String getMethod() {
+      return "GET";
+    }
+
+    @Override
+    public Variant selectVariant(List<Variant> variants) {
+      return null;
+    }
+
+    @Override
+    public Response.ResponseBuilder evaluatePreconditions(EntityTag eTag) {
+      return null;
+    }
+
+    @Override
+    public Response.ResponseBuilder evaluatePreconditions(Date lastModified) {
+      return null;
+    }
+
+    @Override
+    public Response.ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag eTag) {
+      return null;
+    }
+
+    @Override
+    public Response.ResponseBuilder evaluatePreconditions() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.List;
+
+@Path("/provider/batch")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class BatchResource {
+
+  private final ProviderJsonHandler handler;
+
+  public BatchResource(ProviderJsonHandler handler) {
+    this.handler = handler;
+  }
+
+  @POST
+  public StreamingOutput providerBatch(List<String> validDates) {
+    DataStore.Snapshot snapshot = handler.batchSnapshot(validDates);
+    return output -> handler.writeBatch(validDates, snapshot, output);
+  }
+}
@@ -0,0 +1,57 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.providercore.CoalescingChangeListener;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.glassfish.jersey.media.sse.SseBroadcaster;
+import org.glassfish.jersey.media.sse.SseFeature;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams {@link DataStore} changes as server-sent events, so consumers can hold one connection open
+ * instead of polling /provider.json. Every subscriber first gets the current snapshot, then one
+ * {@code data} event per coalesced burst of changes, with the snapshot version as the event id. A
+ * comment is sent every {@link #HEARTBEAT} so idle connections are not timed out.
+ */
+@Path("/provider/events")
+@Produces(SseFeature.SERVER_SENT_EVENTS)
+public class DataStoreEventsResource {
+  static final Duration COALESCING_WINDOW = Duration.ofMillis(50);
+  static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+  private final DataStore dataStore;
+  private final SseBroadcaster broadcaster = new SseBroadcaster();
+
+  public DataStoreEventsResource(DataStore dataStore, ScheduledExecutorService scheduler) {
+    this.dataStore = dataStore;
+    dataStore.addListener(new CoalescingChangeListener(dataStore, scheduler, COALESCING_WINDOW,
+      snapshot -> broadcaster.broadcast(event(snapshot))));
+    scheduler.scheduleAtFixedRate(() -> broadcaster.broadcast(new OutboundEvent.Builder().comment("heartbeat").build()),
+      HEARTBEAT.toMillis(), HEARTBEAT.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @GET
+  public EventOutput subscribe() throws IOException {
+    EventOutput output = new EventOutput();
+    // registered before the current snapshot is sent, so a change in between is not lost
+    broadcaster.add(output);
+    output.write(event(dataStore.getSnapshot()));
+    return output;
+  }
+
+  private static OutboundEvent event(DataStore.Snapshot snapshot) {
+    return new OutboundEvent.Builder()
+      .id(Long.toString(snapshot.getVersion()))
+      .name("data")
+      .data(String.class, "{\"version\":" + snapshot.getVersion() + ",\"count\":" + snapshot.getDataCount() + "}")
+      .build();
+  }
+}
@@ -0,0 +1,34 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import com.codahale.metrics.MetricRegistry;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.dropwizard.DropwizardConfig;
+import io.micrometer.core.instrument.dropwizard.DropwizardMeterRegistry;
+import io.micrometer.core.instrument.util.HierarchicalNameMapper;
+
+/**
+ * Publishes Micrometer meters into Dropwizard's {@link MetricRegistry}, so they are reported on the
+ * admin /metrics endpoint next to Dropwizard's own metrics.
+ */
+public class DropwizardMetricsBridge extends DropwizardMeterRegistry {
+  private static final DropwizardConfig CONFIG = new DropwizardConfig() {
+    @Override
+    public String prefix() {
+      return "dropwizard";
+    }
+
+    @Override
+    public String get(String key) {
+      return null;
+    }
+  };
+
+  public DropwizardMetricsBridge(MetricRegistry metricRegistry) {
+    super(CONFIG, metricRegistry, HierarchicalNameMapper.DEFAULT, Clock.SYSTEM);
+  }
+
+  @Override
+  protected Double nullGaugeValue() {
+    return Double.NaN;
+  }
+}
@@ -1,15 +1,76 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.DataStoreJournal;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import au.com.dius.pactworkshop.tracing.Tracer;
 import io.dropwizard.Application;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.glassfish.jersey.media.sse.SseFeature;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
 
 public class MainApplication extends Application<ServiceConfig> {
+  private final DataStore dataStore = new DataStore();
+  private final StartupTiming startupTiming = new StartupTiming();
+
+  public DataStore getDataStore() {
+    return dataStore;
+  }
+
   @Override
-  public void run(ServiceConfig configuration, Environment environment) {
+  public void initialize(Bootstrap<ServiceConfig> bootstrap) {
+    startupTiming.phase("jvm");
+  }
+
+  @Override
+  public void run(ServiceConfig configuration, Environment environment) throws IOException {
+    startupTiming.phase("configuration");
+    if (configuration.getDataStoreFile() != null) {
+      DataStoreJournal journal = DataStoreJournal.open(Paths.get(configuration.getDataStoreFile()), dataStore);
+      environment.lifecycle().manage(new Managed() {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() throws IOException {
+          journal.close();
+        }
+      });
+    }
+    PrometheusMeterRegistry prometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+    meterRegistry.add(prometheusRegistry);
+    meterRegistry.add(new DropwizardMetricsBridge(environment.metrics()));
+    environment.admin().addServlet("prometheus", new PrometheusServlet(prometheusRegistry)).addMapping("/prometheus");
+    Tracer tracer = new Tracer(configuration.getTraceSampleRate());
+    environment.admin().addServlet("traces", new TracesServlet(tracer)).addMapping("/traces");
+    FilterRegistration.Dynamic tracing = environment.servlets().addFilter("tracing", new TracingFilter(tracer));
+    tracing.setAsyncSupported(true);
+    tracing.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+
     environment.jersey().register(new InvalidQueryParameterExceptionMapper());
     environment.jersey().register(new QueryParameterRequiredExceptionMapper());
     environment.jersey().register(new NoDataExceptionMapper());
-    environment.jersey().register(new RootResource());
+    ProviderJsonHandler handler = new ProviderJsonHandler(dataStore);
+    environment.jersey().register(new RootResource(handler, new ProviderJsonMetrics(meterRegistry)));
+    environment.jersey().register(new BatchResource(handler));
+    environment.jersey().register(SseFeature.class);
+    environment.jersey().register(new DataStoreEventsResource(dataStore,
+      environment.lifecycle().scheduledExecutorService("data-store-events").threads(1).build()));
+    environment.lifecycle().addServerLifecycleListener(startupTiming::serverStarted);
+    startupTiming.phase("application");
   }
 
   public static void main(String[] args) throws Exception {
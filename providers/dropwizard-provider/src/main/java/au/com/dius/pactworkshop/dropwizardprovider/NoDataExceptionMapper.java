@@ -1,11 +1,19 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
+import au.com.dius.pactworkshop.providercore.NoDataException;
+import au.com.dius.pactworkshop.tracing.Span;
+
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 
 public class NoDataExceptionMapper implements ExceptionMapper<NoDataException> {
   @Override
   public Response toResponse(NoDataException exception) {
-    return Response.status(Response.Status.NOT_FOUND).build();
+    Span span = Span.current().startChild("NoDataExceptionMapper").recordException(exception);
+    try {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    } finally {
+      span.end();
+    }
   }
 }
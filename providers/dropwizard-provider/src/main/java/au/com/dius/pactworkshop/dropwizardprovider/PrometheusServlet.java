@@ -0,0 +1,27 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves the Micrometer meters in the Prometheus text exposition format on the admin port.
+ */
+public class PrometheusServlet extends HttpServlet {
+  private final transient PrometheusMeterRegistry registry;
+
+  public PrometheusServlet(PrometheusMeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(TextFormat.CONTENT_TYPE_004);
+    registry.scrape(response.getWriter());
+  }
+}
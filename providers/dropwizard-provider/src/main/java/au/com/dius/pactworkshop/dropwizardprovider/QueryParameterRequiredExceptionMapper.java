@@ -1,5 +1,8 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
+import au.com.dius.pactworkshop.providercore.QueryParameterRequiredException;
+import au.com.dius.pactworkshop.tracing.Span;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -7,10 +10,14 @@ import javax.ws.rs.ext.ExceptionMapper;
 public class QueryParameterRequiredExceptionMapper implements ExceptionMapper<QueryParameterRequiredException> {
   @Override
   public Response toResponse(QueryParameterRequiredException exception) {
-    return Response.status(Response.Status.BAD_REQUEST)
-      .type(MediaType.APPLICATION_JSON_TYPE)
-      .entity("{\"error\": \"" + exception.getMessage() + "\"}")
-      .build();
+    Span span = Span.current().startChild("QueryParameterRequiredExceptionMapper").recordException(exception);
+    try {
+      return Response.status(Response.Status.BAD_REQUEST)
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .entity(exception.getBody())
+        .build();
+    } finally {
+      span.end();
+    }
   }
-
 }
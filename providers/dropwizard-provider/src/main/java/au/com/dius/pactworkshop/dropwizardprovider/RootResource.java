@@ -1,42 +1,82 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
+import au.com.dius.pactworkshop.providercore.ProviderJsonEncoding;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import au.com.dius.pactworkshop.providercore.ProviderJsonRenderer;
+import au.com.dius.pactworkshop.tracing.Span;
+
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
-import java.io.Serializable;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
-import java.util.Map;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * JAX-RS adapter for {@link ProviderJsonHandler}: negotiates the encoding and evaluates the
+ * request's preconditions against the rendered body's validators.
+ */
 @Path("/provider.json")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, "application/cbor", "application/x-jackson-smile"})
 public class RootResource {
+  private static final ProviderJsonEncoding[] ENCODINGS = ProviderJsonEncoding.values();
+  private static final MediaType[] MEDIA_TYPES = Arrays.stream(ENCODINGS)
+    .map(encoding -> MediaType.valueOf(encoding.getMediaType()))
+    .toArray(MediaType[]::new);
+  private static final List<Variant> VARIANTS = Variant.mediaTypes(MEDIA_TYPES).build();
+
+  private final ProviderJsonHandler handler;
+  private final ProviderJsonMetrics metrics;
+
+  public RootResource(ProviderJsonHandler handler, ProviderJsonMetrics metrics) {
+    this.handler = handler;
+    this.metrics = metrics;
+  }
 
   @GET
-  public Map<String, Serializable> providerJson(@QueryParam("validDate") Optional<String> validDate) {
-    if (validDate.isPresent()) {
-      if (DataStore.INSTANCE.getDataCount() > 0) {
-        try {
-          LocalDateTime validTime = LocalDateTime.parse(validDate.get());
-          Map<String, Serializable> result = new HashMap<>(3);
-          result.put("test", "NO");
-          result.put("validDate", OffsetDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")));
-          result.put("count", DataStore.INSTANCE.getDataCount());
-          return result;
-        } catch (DateTimeParseException e) {
-          throw new InvalidQueryParameterException("'" + validDate.get() + "' is not a date", e);
-        }
-      } else {
-        throw new NoDataException();
+  public Response providerJson(@QueryParam("validDate") Optional<String> validDate, @Context Request request) {
+    return metrics.record(() -> render(validDate, request));
+  }
+
+  private Response render(Optional<String> validDate, Request request) {
+    ProviderJsonRenderer.Body body = handler.providerJson(validDate.orElse(null));
+    Span span = Span.current().startChild("negotiate");
+    ProviderJsonEncoding encoding = negotiate(request);
+    EntityTag entityTag = new EntityTag(body.getEntityTag(encoding));
+    Date lastModified = new Date(body.getLastModified());
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, entityTag);
+    span.setAttribute("encoding", encoding).setAttribute("notModified", notModified != null).end();
+    if (notModified != null) {
+      return notModified.build();
+    }
+    return Response.ok(body.getBytes(encoding), encoding.getMediaType())
+      .tag(entityTag)
+      .lastModified(lastModified)
+      .build();
+  }
+
+  /**
+   * Picks the encoding from the Accept header, falling back to JSON when none of them is acceptable.
+   */
+  private static ProviderJsonEncoding negotiate(Request request) {
+    Variant variant = request.selectVariant(VARIANTS);
+    if (variant == null) {
+      return ProviderJsonEncoding.JSON;
+    }
+    for (int i = 0; i < MEDIA_TYPES.length; i++) {
+      if (MEDIA_TYPES[i].isCompatible(variant.getMediaType())) {
+        return ENCODINGS[i];
       }
-    } else {
-      throw new QueryParameterRequiredException("validDate is required");
     }
+    return ProviderJsonEncoding.JSON;
   }
 }
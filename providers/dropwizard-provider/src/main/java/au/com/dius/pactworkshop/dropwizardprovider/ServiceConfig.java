@@ -1,6 +1,35 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 
 public class ServiceConfig extends Configuration {
+  private String dataStoreFile;
+  private double traceSampleRate = 0.01;
+
+  /**
+   * The file the data is kept in across restarts, or null to keep it in memory only.
+   */
+  @JsonProperty
+  public String getDataStoreFile() {
+    return dataStoreFile;
+  }
+
+  @JsonProperty
+  public void setDataStoreFile(String dataStoreFile) {
+    this.dataStoreFile = dataStoreFile;
+  }
+
+  /**
+   * The fraction of requests without a {@code traceparent} header that are traced.
+   */
+  @JsonProperty
+  public double getTraceSampleRate() {
+    return traceSampleRate;
+  }
+
+  @JsonProperty
+  public void setTraceSampleRate(double traceSampleRate) {
+    this.traceSampleRate = traceSampleRate;
+  }
 }
@@ -0,0 +1,44 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times each phase of startup, from JVM start until Jetty is accepting requests, and logs them once
+ * the server has started (logging is only configured part way through). With
+ * {@code -Dprovider.exit-after-startup=true} the application then exits, which is how the
+ * {@code cdsArchive} task records the classes loaded during startup.
+ */
+class StartupTiming {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StartupTiming.class);
+
+  private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  synchronized void phase(String name) {
+    phases.put(name, System.currentTimeMillis());
+  }
+
+  void serverStarted(Server server) {
+    phase("ready");
+    log();
+    if (Boolean.getBoolean("provider.exit-after-startup")) {
+      // exit from another thread, the shutdown hooks stop the server this thread is still starting
+      new Thread(() -> System.exit(0), "exit-after-startup").start();
+    }
+  }
+
+  private synchronized void log() {
+    long previous = jvmStart;
+    for (Map.Entry<String, Long> phase : phases.entrySet()) {
+      long end = phase.getValue();
+      LOGGER.info("event=startup phase={} phaseMs={} sinceJvmStartMs={}", phase.getKey(), end - previous, end - jvmStart);
+      previous = end;
+    }
+  }
+}
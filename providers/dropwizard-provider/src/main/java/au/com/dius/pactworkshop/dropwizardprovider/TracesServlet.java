@@ -0,0 +1,36 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.tracing.Tracer;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves the most recent sampled traces as JSON on the admin port. {@code ?minMillis=} leaves out
+ * the ones that were quicker than that.
+ */
+public class TracesServlet extends HttpServlet {
+  private final transient Tracer tracer;
+
+  public TracesServlet(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long minMillis;
+    try {
+      String parameter = request.getParameter("minMillis");
+      minMillis = parameter == null ? 0 : Long.parseLong(parameter);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "minMillis must be a number");
+      return;
+    }
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    response.getWriter().write(tracer.toJson(minMillis));
+  }
+}
@@ -0,0 +1,99 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.tracing.Span;
+import au.com.dius.pactworkshop.tracing.Tracer;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Starts a span for every request before Jersey sees it, continuing the caller's trace from its
+ * {@code traceparent} header. The span is current on the request thread until the response has been
+ * written, so the resources, the handler and the exception mappers can add their own spans to it. It
+ * is a servlet filter rather than a Jersey one so that the span is ended, and the thread's current
+ * span restored, however the request ends.
+ * <p>
+ * Jersey suspends the request for the event stream, so the first dispatch returns before anything is
+ * written. The span of a request that went asynchronous is ended by an {@link AsyncListener} once the
+ * async request completes, so that it covers the whole response and its final status.
+ */
+public class TracingFilter implements Filter {
+  private final Tracer tracer;
+
+  public TracingFilter(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @Override
+  public void init(FilterConfig filterConfig) {
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+    throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+    Span span = tracer.startSpan(request.getMethod(), request.getRequestURI(), request.getHeader("traceparent"));
+    boolean async = false;
+    try (Span.Scope scope = span.makeCurrent()) {
+      chain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new EndSpanListener(span, response));
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        span.setAttribute("http.status", response.getStatus());
+        span.end();
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+  }
+
+  private static final class EndSpanListener implements AsyncListener {
+    private final Span span;
+    private final HttpServletResponse response;
+
+    EndSpanListener(Span span, HttpServletResponse response) {
+      this.span = span;
+      this.response = response;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      span.setAttribute("http.status", response.getStatus());
+      span.end();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      if (event.getThrowable() != null) {
+        span.recordException(event.getThrowable());
+      }
+      onComplete(event);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows once the timeout has been handled
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // starting async again drops the listeners, so stay registered for the new cycle
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
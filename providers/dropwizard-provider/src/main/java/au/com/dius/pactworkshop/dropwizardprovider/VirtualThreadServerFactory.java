@@ -0,0 +1,20 @@
+package au.com.dius.pactworkshop.dropwizardprovider;
+
+import au.com.dius.pactworkshop.providercore.VirtualThreadPool;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.server.DefaultServerFactory;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * The default server, but handling requests on virtual threads instead of Dropwizard's bounded
+ * thread pool. Selected with {@code server.type: virtual-threads} in the configuration; the
+ * {@code minThreads}/{@code maxThreads}/{@code maxQueuedRequests} settings no longer apply.
+ */
+@JsonTypeName("virtual-threads")
+public class VirtualThreadServerFactory extends DefaultServerFactory {
+  @Override
+  protected ThreadPool createThreadPool(MetricRegistry metricRegistry) {
+    return new VirtualThreadPool();
+  }
+}
@@ -1,37 +1,52 @@
 package au.com.dius.pactworkshop.dropwizardprovider;
 
-import au.com.dius.pact.provider.junit.PactRunner;
-import au.com.dius.pact.provider.junit.target.HttpTarget;
 import au.com.dius.pact.provider.junitsupport.Provider;
 import au.com.dius.pact.provider.junitsupport.State;
 import au.com.dius.pact.provider.junitsupport.loader.PactBroker;
 import au.com.dius.pact.provider.junitsupport.loader.PactBrokerAuth;
-import au.com.dius.pact.provider.junitsupport.target.Target;
-import au.com.dius.pact.provider.junitsupport.target.TestTarget;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.PooledPactVerificationTest;
+import au.com.dius.pactworkshop.providercore.ProviderPool;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
 import io.dropwizard.testing.ResourceHelpers;
-import io.dropwizard.testing.junit.DropwizardAppRule;
-import org.junit.ClassRule;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
 
-@RunWith(PactRunner.class)
+/**
+ * Verifies the pacts from the broker against a {@link ProviderPool} of applications.
+ */
 @Provider("Our Provider")
 @PactBroker(host = "${pactBrokerHost}", scheme = "${pactBrokerScheme}", port = "${pactBrokerPort}",
   authentication = @PactBrokerAuth(username = "${pactBrokerUser}", password = "${pactBrokerPassword}"))
-public class PactVerificationTest {
-  @ClassRule
-  public static final DropwizardAppRule<ServiceConfig> RULE = new DropwizardAppRule<ServiceConfig>(MainApplication.class,
-    ResourceHelpers.resourceFilePath("main-app-config.yaml"));
+public class PactVerificationTest extends PooledPactVerificationTest<DropwizardTestSupport<ServiceConfig>> {
+  @RegisterExtension
+  static final ProviderPool<DropwizardTestSupport<ServiceConfig>> PROVIDERS = new ProviderPool<>(
+    PactVerificationTest::startProvider, DropwizardTestSupport::after, DropwizardTestSupport::getLocalPort);
 
-  @TestTarget
-  public final Target target = new HttpTarget(8080);
+  public PactVerificationTest() {
+    super(PROVIDERS);
+  }
+
+  private static DropwizardTestSupport<ServiceConfig> startProvider() throws Exception {
+    DropwizardTestSupport<ServiceConfig> provider = new DropwizardTestSupport<>(MainApplication.class,
+      ResourceHelpers.resourceFilePath("main-app-config.yaml"),
+      ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+      ConfigOverride.config("server.adminConnectors[0].port", "0"));
+    provider.before();
+    return provider;
+  }
 
   @State("data count > 0")
   public void dataCountGreaterThanZero() {
-    DataStore.INSTANCE.setDataCount(1000);
+    dataStore().setDataCount(1000);
   }
 
   @State("data count == 0")
   public void dataCountZero() {
-    DataStore.INSTANCE.setDataCount(0);
+    dataStore().setDataCount(0);
+  }
+
+  private DataStore dataStore() {
+    return provider().<MainApplication>getApplication().getDataStore();
   }
 }
@@ -0,0 +1,56 @@
+package au.com.dius.pactworkshop.providercore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ProviderJsonHandler} on its own, the request logic every provider shares, so
+ * changes to it can be compared without a framework or a socket in the way. {@code request} covers
+ * the successful path and each of the 400 and 404 answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProviderJsonHandlerBenchmark {
+
+  @Param({"ok", "missingDate", "invalidDate", "noData"})
+  private String request;
+
+  private ProviderJsonHandler handler;
+  private ProviderJsonMetrics metrics;
+  private String validDate;
+
+  @Setup
+  public void setUp() {
+    DataStore dataStore = new DataStore();
+    dataStore.setDataCount("noData".equals(request) ? 0 : 1000);
+    handler = new ProviderJsonHandler(dataStore);
+    metrics = new ProviderJsonMetrics(new SimpleMeterRegistry());
+    if ("missingDate".equals(request)) {
+      validDate = null;
+    } else if ("invalidDate".equals(request)) {
+      validDate = "16/08/2013 15:31:20";
+    } else {
+      validDate = LocalDateTime.now().toString();
+    }
+  }
+
+  @Benchmark
+  public Object providerJson() {
+    try {
+      return metrics.record(() -> handler.providerJson(validDate));
+    } catch (RuntimeException e) {
+      return e;
+    }
+  }
+}
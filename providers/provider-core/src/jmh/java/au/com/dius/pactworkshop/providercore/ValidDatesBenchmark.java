@@ -0,0 +1,41 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ValidDates#isDate} with the {@code LocalDateTime.parse} check it replaced, for a
+ * date as clients send it, a malformed one and a well-formed one that is out of range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidDatesBenchmark {
+
+  @Param({"2013-08-16T15:31:20.123", "16/08/2013 15:31:20", "2013-02-30T15:31:20"})
+  private String validDate;
+
+  @Benchmark
+  public boolean handRolled() {
+    return ValidDates.isDate(validDate);
+  }
+
+  @Benchmark
+  public boolean localDateTimeParse() {
+    try {
+      LocalDateTime.parse(validDate);
+      return true;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams the body of the batch endpoint: a JSON array holding, for each requested date in order,
+ * either the body /provider.json would return for it or an {"error": ...} object.
+ */
+class BatchWriter {
+  private final ProviderJsonRenderer renderer;
+
+  BatchWriter(ProviderJsonRenderer renderer) {
+    this.renderer = renderer;
+  }
+
+  void write(List<String> validDates, DataStore.Snapshot snapshot, OutputStream out) throws IOException {
+    out.write('[');
+    for (int i = 0; i < validDates.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      String validDate = validDates.get(i);
+      if (StringUtils.isEmpty(validDate)) {
+        out.write(QueryParameterRequiredException.VALID_DATE.getBody());
+      } else if (ValidDates.isDate(validDate)) {
+        out.write(renderer.render(snapshot).getBytes());
+      } else {
+        ErrorBodies.write(out, "'" + validDate + "' is not a date");
+      }
+    }
+    out.write(']');
+    out.flush();
+  }
+}
@@ -0,0 +1,41 @@
+package au.com.dius.pactworkshop.providercore;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Passes on {@link DataStore} changes at most once per window: the first change in a burst schedules
+ * a flush, and the flush hands over whatever the latest snapshot is by then. A change racing with a
+ * flush can cause the same snapshot to be passed on twice, so receivers should ignore versions they
+ * have already seen.
+ */
+public class CoalescingChangeListener implements DataStore.ChangeListener {
+  private final DataStore dataStore;
+  private final ScheduledExecutorService scheduler;
+  private final long windowNanos;
+  private final Consumer<DataStore.Snapshot> receiver;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  public CoalescingChangeListener(DataStore dataStore, ScheduledExecutorService scheduler, Duration window,
+                                  Consumer<DataStore.Snapshot> receiver) {
+    this.dataStore = dataStore;
+    this.scheduler = scheduler;
+    this.windowNanos = window.toNanos();
+    this.receiver = receiver;
+  }
+
+  @Override
+  public void dataChanged(DataStore.Snapshot previous, DataStore.Snapshot current) {
+    if (scheduled.compareAndSet(false, true)) {
+      scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void flush() {
+    scheduled.set(false);
+    receiver.accept(dataStore.getSnapshot());
+  }
+}
@@ -0,0 +1,115 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the provider's data. Every change publishes a new immutable {@link Snapshot} with a higher
+ * version, so readers get a consistent view without locking and caches can tell whether they are
+ * stale by comparing snapshots or versions.
+ * <p>
+ * Each application instance owns its store, so several providers can run side by side in one JVM
+ * without sharing state.
+ */
+public class DataStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataStore.class);
+
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(1000, 0L));
+  private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  public Snapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  public int getDataCount() {
+    return snapshot.get().getDataCount();
+  }
+
+  public long getVersion() {
+    return snapshot.get().getVersion();
+  }
+
+  public void setDataCount(int dataCount) {
+    Snapshot previous;
+    Snapshot current;
+    do {
+      previous = snapshot.get();
+      if (previous.getDataCount() == dataCount) {
+        return;
+      }
+      current = new Snapshot(dataCount, previous.getVersion() + 1);
+    } while (!snapshot.compareAndSet(previous, current));
+    notifyListeners(previous, current);
+  }
+
+  /**
+   * Atomically adds {@code delta} to the data count and returns the new count.
+   */
+  public int addToDataCount(int delta) {
+    Snapshot previous;
+    Snapshot current;
+    do {
+      previous = snapshot.get();
+      current = new Snapshot(previous.getDataCount() + delta, previous.getVersion() + 1);
+    } while (!snapshot.compareAndSet(previous, current));
+    notifyListeners(previous, current);
+    return current.getDataCount();
+  }
+
+  /**
+   * Replaces the current state with {@code restored}, e.g. one recovered by {@link DataStoreJournal}.
+   */
+  void restore(Snapshot restored) {
+    Snapshot previous = snapshot.getAndSet(restored);
+    notifyListeners(previous, restored);
+  }
+
+  public void addListener(ChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(ChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  private void notifyListeners(Snapshot previous, Snapshot current) {
+    for (ChangeListener listener : listeners) {
+      try {
+        listener.dataChanged(previous, current);
+      } catch (RuntimeException e) {
+        LOGGER.warn("DataStore listener {} failed", listener, e);
+      }
+    }
+  }
+
+  /**
+   * Called on the thread that made the change, after the new snapshot has been published. Changes
+   * made concurrently may be reported out of order; use {@link Snapshot#getVersion()} to tell
+   * which one is the latest.
+   */
+  public interface ChangeListener {
+    void dataChanged(Snapshot previous, Snapshot current);
+  }
+
+  public static final class Snapshot {
+    private final int dataCount;
+    private final long version;
+
+    Snapshot(int dataCount, long version) {
+      this.dataCount = dataCount;
+      this.version = version;
+    }
+
+    public int getDataCount() {
+      return dataCount;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+  }
+}
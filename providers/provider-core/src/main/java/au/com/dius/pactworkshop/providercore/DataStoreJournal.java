@@ -0,0 +1,258 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a {@link DataStore}'s state in a memory-mapped file, so a restarted provider carries on from
+ * where it stopped instead of from the default count.
+ * <p>
+ * The file holds two header slots and an append-only log of changes. Every change is written to the
+ * log as a checksummed record. On every flush that has new records, and whenever the log is full, the
+ * latest state is compacted into the older header slot under a new generation and the log starts again
+ * from the beginning, which makes every record of the previous generation stale. Each force therefore
+ * writes back the header and the first few record pages rather than a page further along the file
+ * every time. Recovery takes the newest valid header and the newest valid record
+ * of its generation, so a torn record or header is skipped rather than trusted.
+ * <p>
+ * Changes are only written to memory on the thread that made them; the file is forced to disk in the
+ * background every flush interval. A crashed process therefore loses nothing, and a crashed machine
+ * at most the changes of the last interval.
+ */
+public final class DataStoreJournal implements Closeable {
+  static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+  static final int MAGIC = 0x50444a31;
+  static final int HEADER_SLOT_SIZE = 32;
+  static final int HEADER_SIZE = 2 * HEADER_SLOT_SIZE;
+  static final int RECORD_SIZE = 24;
+  static final int CAPACITY = 4096;
+  static final int FILE_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataStoreJournal.class);
+
+  private final Path file;
+  private final FileChannel channel;
+  private final FileLock lock;
+  private final MappedByteBuffer buffer;
+  private final DataStore dataStore;
+  private final DataStore.ChangeListener listener = (previous, current) -> append(current);
+  private final CRC32 crc = new CRC32();
+  private final ScheduledExecutorService flusher;
+  private long generation;
+  private long lastVersion;
+  private int next;
+  private boolean closed;
+  private volatile boolean dirty;
+
+  private DataStoreJournal(Path file, FileChannel channel, FileLock lock, MappedByteBuffer buffer,
+                           DataStore dataStore, long generation) {
+    this.file = file;
+    this.channel = channel;
+    this.lock = lock;
+    this.buffer = buffer;
+    this.dataStore = dataStore;
+    this.generation = generation;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "data-store-journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Restores {@code dataStore} from {@code file}, if it holds any state, and records every later
+   * change there. The file is created if it does not exist, and may only be open once at a time.
+   */
+  public static DataStoreJournal open(Path file, DataStore dataStore) throws IOException {
+    return open(file, dataStore, DEFAULT_FLUSH_INTERVAL);
+  }
+
+  static DataStoreJournal open(Path file, DataStore dataStore, Duration flushInterval) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    }
+    if (lock == null) {
+      channel.close();
+      throw new IOException(file + " is already in use by another provider");
+    }
+
+    DataStoreJournal journal;
+    try {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+      buffer.load();
+      long started = System.nanoTime();
+      journal = new DataStoreJournal(file, channel, lock, buffer, dataStore, 0);
+      DataStore.Snapshot recovered = journal.recover();
+      if (recovered != null) {
+        dataStore.restore(recovered);
+        LOGGER.info("event=dataStoreRecovered file={} version={} dataCount={} recoveryMicros={}", file,
+          recovered.getVersion(), recovered.getDataCount(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+      }
+      journal.start();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    journal.flusher.scheduleWithFixedDelay(journal::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+      TimeUnit.MILLISECONDS);
+    return journal;
+  }
+
+  /**
+   * The newest state in the file, or null if it holds none. Leaves {@link #generation} at the
+   * generation it was found under.
+   */
+  private DataStore.Snapshot recover() {
+    DataStore.Snapshot latest = null;
+    for (int slot = 0; slot < 2; slot++) {
+      int offset = slot * HEADER_SLOT_SIZE;
+      if (buffer.getInt(offset) != MAGIC) {
+        continue;
+      }
+      long slotGeneration = buffer.getLong(offset + 4);
+      long version = buffer.getLong(offset + 12);
+      int dataCount = buffer.getInt(offset + 20);
+      if (buffer.getInt(offset + 24) == checksum(slotGeneration, version, dataCount) && slotGeneration > generation) {
+        generation = slotGeneration;
+        latest = new DataStore.Snapshot(dataCount, version);
+      }
+    }
+    if (latest == null) {
+      return null;
+    }
+    for (int i = 0; i < CAPACITY; i++) {
+      int offset = HEADER_SIZE + i * RECORD_SIZE;
+      if (buffer.getLong(offset) != generation) {
+        continue;
+      }
+      long version = buffer.getLong(offset + 8);
+      int dataCount = buffer.getInt(offset + 16);
+      if (buffer.getInt(offset + 20) == checksum(generation, version, dataCount) && version > latest.getVersion()) {
+        latest = new DataStore.Snapshot(dataCount, version);
+      }
+    }
+    return latest;
+  }
+
+  /**
+   * Starts a fresh generation from the store's current state and starts listening for changes.
+   */
+  private synchronized void start() {
+    // records left over from a lost generation must not become valid under the new one, so the new
+    // generation is newer than any record's
+    for (int offset = HEADER_SIZE; offset < FILE_SIZE; offset += RECORD_SIZE) {
+      generation = Math.max(generation, buffer.getLong(offset));
+    }
+    dataStore.addListener(listener);
+    compact(dataStore.getSnapshot());
+    // the new header has to be on disk before the records it replaces are cleared, or a crash in
+    // between could leave neither
+    buffer.force();
+    for (int offset = HEADER_SIZE; offset < FILE_SIZE; offset += 8) {
+      buffer.putLong(offset, 0L);
+    }
+    buffer.force();
+    dirty = false;
+  }
+
+  private synchronized void append(DataStore.Snapshot current) {
+    // changes made concurrently can be reported out of order, and only the latest one matters
+    if (closed || current.getVersion() <= lastVersion) {
+      return;
+    }
+    if (next == CAPACITY) {
+      compact(current);
+    } else {
+      int offset = HEADER_SIZE + next * RECORD_SIZE;
+      buffer.putLong(offset, generation);
+      buffer.putLong(offset + 8, current.getVersion());
+      buffer.putInt(offset + 16, current.getDataCount());
+      buffer.putInt(offset + 20, checksum(generation, current.getVersion(), current.getDataCount()));
+      next++;
+      lastVersion = current.getVersion();
+    }
+    dirty = true;
+  }
+
+  /**
+   * Writes {@code current} to the older header slot under a new generation and empties the log.
+   */
+  private void compact(DataStore.Snapshot current) {
+    generation++;
+    int offset = (int) (generation & 1) * HEADER_SLOT_SIZE;
+    buffer.putInt(offset, MAGIC);
+    buffer.putLong(offset + 4, generation);
+    buffer.putLong(offset + 12, current.getVersion());
+    buffer.putInt(offset + 20, current.getDataCount());
+    buffer.putInt(offset + 24, checksum(generation, current.getVersion(), current.getDataCount()));
+    next = 0;
+    lastVersion = current.getVersion();
+  }
+
+  private int checksum(long generation, long version, int dataCount) {
+    crc.reset();
+    update(generation);
+    update(version);
+    update(dataCount);
+    return (int) crc.getValue();
+  }
+
+  private void update(long value) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      crc.update((int) (value >>> shift));
+    }
+  }
+
+  private void flush() {
+    if (dirty) {
+      synchronized (this) {
+        if (!closed && next > 0) {
+          compact(dataStore.getSnapshot());
+        }
+      }
+      dirty = false;
+      buffer.force();
+    }
+  }
+
+  /**
+   * Stops recording changes and forces everything recorded so far to disk.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    dataStore.removeListener(listener);
+    flusher.shutdownNow();
+    try {
+      buffer.force();
+      lock.release();
+    } finally {
+      channel.close();
+    }
+    LOGGER.debug("event=dataStoreJournalClosed file={}", file);
+  }
+}
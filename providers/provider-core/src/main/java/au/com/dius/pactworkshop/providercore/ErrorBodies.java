@@ -0,0 +1,39 @@
+package au.com.dius.pactworkshop.providercore;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the {"error": ...} bodies of 400 responses and of the batch endpoint's rejected dates.
+ * Messages can echo request input, so they are escaped rather than concatenated into the JSON.
+ */
+final class ErrorBodies {
+  private static final byte[] PREFIX = "{\"error\": \"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  private ErrorBodies() {
+  }
+
+  static byte[] encode(String message) {
+    byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(message);
+    ByteArrayOutputStream body = new ByteArrayOutputStream(PREFIX.length + quoted.length + SUFFIX.length);
+    body.write(PREFIX, 0, PREFIX.length);
+    body.write(quoted, 0, quoted.length);
+    body.write(SUFFIX, 0, SUFFIX.length);
+    return body.toByteArray();
+  }
+
+  /**
+   * Writes the body {@link #encode} would return straight to {@code out}, for the batch endpoint's
+   * per-date errors.
+   */
+  static void write(OutputStream out, String message) throws IOException {
+    out.write(PREFIX);
+    out.write(JsonStringEncoder.getInstance().quoteAsUTF8(message));
+    out.write(SUFFIX);
+  }
+}
@@ -0,0 +1,17 @@
+package au.com.dius.pactworkshop.providercore;
+
+/**
+ * Thrown for routine bad input, so it does not capture a stack trace.
+ */
+public class InvalidQueryParameterException extends RuntimeException {
+  private final byte[] body;
+
+  public InvalidQueryParameterException(String message) {
+    super(message, null, false, false);
+    this.body = ErrorBodies.encode(message);
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+}
@@ -0,0 +1,13 @@
+package au.com.dius.pactworkshop.providercore;
+
+/**
+ * Thrown whenever there is no data, so it does not capture a stack trace and is thrown as the
+ * shared {@link #INSTANCE}.
+ */
+public class NoDataException extends RuntimeException {
+  public static final NoDataException INSTANCE = new NoDataException();
+
+  public NoDataException() {
+    super("No Data", null, false, false);
+  }
+}
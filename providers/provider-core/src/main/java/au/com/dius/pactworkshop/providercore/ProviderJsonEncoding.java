@@ -0,0 +1,46 @@
+package au.com.dius.pactworkshop.providercore;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The representations /provider.json can be served in. They all carry the same fields; the binary
+ * ones are smaller and cheaper to parse for clients that ask for them.
+ */
+public enum ProviderJsonEncoding {
+  JSON("application/json", null),
+  CBOR("application/cbor", new CBORFactory()),
+  SMILE("application/x-jackson-smile", new SmileFactory());
+
+  private final String mediaType;
+  private final JsonFactory factory;
+
+  ProviderJsonEncoding(String mediaType, JsonFactory factory) {
+    this.mediaType = mediaType;
+    this.factory = factory;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  byte[] encodeBinary(String validDate, int dataCount) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    try (JsonGenerator generator = factory.createGenerator(out)) {
+      generator.writeStartObject();
+      generator.writeStringField("test", "NO");
+      generator.writeStringField("validDate", validDate);
+      generator.writeNumberField("count", dataCount);
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,84 @@
+package au.com.dius.pactworkshop.providercore;
+
+import au.com.dius.pactworkshop.tracing.Span;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * The framework-independent part of /provider.json and /provider/batch: validating the request,
+ * taking a {@link DataStore} snapshot and rendering it. Failures are thrown as
+ * {@link QueryParameterRequiredException}, {@link InvalidQueryParameterException} and
+ * {@link NoDataException}, which the JAX-RS and Spring adapters map to 400 and 404 responses; content
+ * negotiation and validators are left to the adapters, which know their framework's headers.
+ */
+public class ProviderJsonHandler {
+  private static final QueryParameterRequiredException BATCH_REQUIRED =
+    new QueryParameterRequiredException("a JSON array of validDate values is required");
+
+  private final DataStore dataStore;
+  private final ProviderJsonRenderer renderer;
+  private final BatchWriter batchWriter;
+
+  public ProviderJsonHandler(DataStore dataStore) {
+    this(dataStore, new ProviderJsonRenderer());
+  }
+
+  ProviderJsonHandler(DataStore dataStore, ProviderJsonRenderer renderer) {
+    this.dataStore = dataStore;
+    this.renderer = renderer;
+    this.batchWriter = new BatchWriter(renderer);
+  }
+
+  /**
+   * Returns the /provider.json body for {@code validDate}. The body is shared between requests and
+   * must not be modified.
+   */
+  public ProviderJsonRenderer.Body providerJson(String validDate) {
+    Span span = Span.current().startChild("providerJson");
+    try (Span.Scope scope = span.makeCurrent()) {
+      return providerJson(validDate, span);
+    } catch (RuntimeException e) {
+      span.recordException(e);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  private ProviderJsonRenderer.Body providerJson(String validDate, Span span) {
+    if (StringUtils.isEmpty(validDate)) {
+      throw QueryParameterRequiredException.VALID_DATE;
+    }
+    DataStore.Snapshot snapshot = dataStore.getSnapshot();
+    span.setAttribute("version", snapshot.getVersion());
+    if (snapshot.getDataCount() <= 0) {
+      throw NoDataException.INSTANCE;
+    }
+    if (!ValidDates.isDate(validDate)) {
+      throw new InvalidQueryParameterException("'" + validDate + "' is not a date");
+    }
+    return renderer.render(snapshot);
+  }
+
+  /**
+   * Checks a /provider/batch request and takes the snapshot it is answered from, so that a 400 or 404
+   * is thrown before any of the streamed body has been written.
+   */
+  public DataStore.Snapshot batchSnapshot(List<String> validDates) {
+    if (validDates == null) {
+      throw BATCH_REQUIRED;
+    }
+    DataStore.Snapshot snapshot = dataStore.getSnapshot();
+    if (snapshot.getDataCount() <= 0) {
+      throw NoDataException.INSTANCE;
+    }
+    return snapshot;
+  }
+
+  public void writeBatch(List<String> validDates, DataStore.Snapshot snapshot, OutputStream out) throws IOException {
+    batchWriter.write(validDates, snapshot, out);
+  }
+}
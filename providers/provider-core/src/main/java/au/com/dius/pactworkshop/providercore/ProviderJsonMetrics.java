@@ -0,0 +1,63 @@
+package au.com.dius.pactworkshop.providercore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.function.Supplier;
+
+/**
+ * Times /provider.json requests, tagged by outcome and by the exception that ended the request.
+ * The timers for the expected outcomes are registered up front so that recording a request does
+ * not have to look anything up in the registry.
+ */
+public class ProviderJsonMetrics {
+  static final String REQUESTS = "provider.json.requests";
+
+  private final MeterRegistry registry;
+  private final Timer success;
+  private final Timer noData;
+  private final Timer invalidQueryParameter;
+  private final Timer queryParameterRequired;
+
+  public ProviderJsonMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.success = timer("SUCCESS", "None");
+    this.noData = timer("CLIENT_ERROR", NoDataException.class.getSimpleName());
+    this.invalidQueryParameter = timer("CLIENT_ERROR", InvalidQueryParameterException.class.getSimpleName());
+    this.queryParameterRequired = timer("CLIENT_ERROR", QueryParameterRequiredException.class.getSimpleName());
+  }
+
+  public <T> T record(Supplier<T> request) {
+    Timer.Sample sample = Timer.start(registry);
+    try {
+      T response = request.get();
+      sample.stop(success);
+      return response;
+    } catch (RuntimeException e) {
+      sample.stop(timerFor(e));
+      throw e;
+    }
+  }
+
+  private Timer timerFor(RuntimeException e) {
+    if (e instanceof NoDataException) {
+      return noData;
+    } else if (e instanceof InvalidQueryParameterException) {
+      return invalidQueryParameter;
+    } else if (e instanceof QueryParameterRequiredException) {
+      return queryParameterRequired;
+    } else {
+      return timer("SERVER_ERROR", e.getClass().getSimpleName());
+    }
+  }
+
+  private Timer timer(String outcome, String exception) {
+    return Timer.builder(REQUESTS)
+      .description("Time taken to answer /provider.json requests")
+      .tag("outcome", outcome)
+      .tag("exception", exception)
+      .publishPercentiles(0.5, 0.95, 0.99)
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+}
@@ -0,0 +1,115 @@
+package au.com.dius.pactworkshop.providercore;
+
+import au.com.dius.pactworkshop.tracing.Span;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders the /provider.json body. The body only changes when the {@link DataStore} publishes a new
+ * snapshot or the clock moves on to the next second, so the encoded bytes are kept and handed out
+ * until then.
+ */
+public class ProviderJsonRenderer {
+  private static final DateTimeFormatter VALID_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX");
+
+  private final Clock clock;
+  private volatile Body body;
+
+  public ProviderJsonRenderer() {
+    this(Clock.systemDefaultZone());
+  }
+
+  ProviderJsonRenderer(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the body for the given snapshot. The returned instance, including its byte array, is
+   * shared between requests and must not be modified.
+   */
+  public Body render(DataStore.Snapshot snapshot) {
+    long epochSecond = Math.floorDiv(clock.millis(), 1000L);
+    Body current = body;
+    if (current == null || current.epochSecond != epochSecond || current.snapshot != snapshot) {
+      // a new snapshot within the same second keeps the formatted date
+      String validDate = current != null && current.epochSecond == epochSecond
+        ? current.validDate
+        : Instant.ofEpochSecond(epochSecond).atZone(clock.getZone()).format(VALID_DATE_FORMAT);
+      Span span = Span.current().startChild("render");
+      current = new Body(epochSecond, snapshot, validDate, encode(validDate, snapshot.getDataCount()));
+      span.end();
+      body = current;
+    }
+    return current;
+  }
+
+  private static byte[] encode(String validDate, int dataCount) {
+    return ("{\"test\":\"NO\",\"validDate\":\"" + validDate + "\",\"count\":" + dataCount + "}")
+      .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * An encoded body together with its validators. The entity tag is strong: it is derived from the
+   * snapshot and the second the body was rendered for, which together determine every byte. The
+   * binary encodings are only produced once a client asks for them.
+   */
+  public static final class Body {
+    private final long epochSecond;
+    private final DataStore.Snapshot snapshot;
+    private final String validDate;
+    private final byte[] bytes;
+    private final String entityTag;
+    private final AtomicReferenceArray<byte[]> encoded = new AtomicReferenceArray<>(ProviderJsonEncoding.values().length);
+
+    private Body(long epochSecond, DataStore.Snapshot snapshot, String validDate, byte[] bytes) {
+      this.epochSecond = epochSecond;
+      this.snapshot = snapshot;
+      this.validDate = validDate;
+      this.bytes = bytes;
+      this.entityTag = Long.toHexString(snapshot.getVersion()) + '-' + Integer.toHexString(snapshot.getDataCount())
+        + '-' + Long.toHexString(epochSecond);
+    }
+
+    public byte[] getBytes() {
+      return bytes;
+    }
+
+    public byte[] getBytes(ProviderJsonEncoding encoding) {
+      if (encoding == ProviderJsonEncoding.JSON) {
+        return bytes;
+      }
+      byte[] result = encoded.get(encoding.ordinal());
+      if (result == null) {
+        // two requests may both encode it, either copy is as good as the other
+        Span span = Span.current().startChild("encode").setAttribute("encoding", encoding);
+        result = encoding.encodeBinary(validDate, snapshot.getDataCount());
+        span.end();
+        encoded.set(encoding.ordinal(), result);
+      }
+      return result;
+    }
+
+    /**
+     * The unquoted entity tag value.
+     */
+    public String getEntityTag() {
+      return entityTag;
+    }
+
+    /**
+     * The unquoted entity tag of the given representation. Each encoding has its own, so caches
+     * never answer a request for one encoding with another.
+     */
+    public String getEntityTag(ProviderJsonEncoding encoding) {
+      return encoding == ProviderJsonEncoding.JSON ? entityTag : entityTag + '-' + encoding.name().toLowerCase();
+    }
+
+    public long getLastModified() {
+      return epochSecond * 1000L;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package au.com.dius.pactworkshop.providercore;
+
+/**
+ * Thrown for routine bad input, so it does not capture a stack trace. Without one an instance holds
+ * no per-request state, and the common case is thrown as the shared {@link #VALID_DATE}.
+ */
+public class QueryParameterRequiredException extends RuntimeException {
+  public static final QueryParameterRequiredException VALID_DATE = new QueryParameterRequiredException("validDate is required");
+
+  private final byte[] body;
+
+  public QueryParameterRequiredException(String message) {
+    super(message, null, false, false);
+    this.body = ErrorBodies.encode(message);
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+}
@@ -0,0 +1,98 @@
+package au.com.dius.pactworkshop.providercore;
+
+import java.text.ParsePosition;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Checks validDate values. Clients send {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]}, which is checked
+ * by hand: character by character, without exceptions and without allocating. Years with a sign,
+ * which {@link LocalDateTime#parse} also accepts, are rare enough to be left to {@link DateTimeFormatter}.
+ */
+final class ValidDates {
+  private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+  private ValidDates() {
+  }
+
+  /**
+   * Whether {@code text} is an ISO local date-time, exactly as accepted by {@link LocalDateTime#parse}.
+   */
+  static boolean isDate(String text) {
+    int length = text.length();
+    if (length > 0 && (text.charAt(0) == '+' || text.charAt(0) == '-')) {
+      return isSignedYearDate(text);
+    }
+    // yyyy-MM-ddTHH:mm is the shortest form
+    if (length < 16
+      || text.charAt(4) != '-' || text.charAt(7) != '-'
+      || (text.charAt(10) != 'T' && text.charAt(10) != 't')
+      || text.charAt(13) != ':') {
+      return false;
+    }
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 2);
+    int day = digits(text, 8, 2);
+    int hour = digits(text, 11, 2);
+    int minute = digits(text, 14, 2);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+      || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+      return false;
+    }
+    if (length == 16) {
+      return true;
+    }
+    if (length < 19 || text.charAt(16) != ':') {
+      return false;
+    }
+    int second = digits(text, 17, 2);
+    if (second < 0 || second > 59) {
+      return false;
+    }
+    if (length == 19) {
+      return true;
+    }
+    // up to nanoseconds, and a trailing '.' without digits is accepted as well
+    if (text.charAt(19) != '.' || length > 29) {
+      return false;
+    }
+    return digits(text, 20, length - 20) >= 0;
+  }
+
+  /**
+   * The value of the {@code count} ASCII digits at {@code start}, or -1 if any of them is not a digit.
+   */
+  private static int digits(String text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2 && (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0)) {
+      return 29;
+    }
+    return DAYS_IN_MONTH[month - 1];
+  }
+
+  private static boolean isSignedYearDate(String text) {
+    ParsePosition position = new ParsePosition(0);
+    if (DateTimeFormatter.ISO_LOCAL_DATE_TIME.parseUnresolved(text, position) == null
+      || position.getIndex() != text.length()) {
+      return false;
+    }
+    try {
+      LocalDateTime.parse(text);
+      return true;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+}
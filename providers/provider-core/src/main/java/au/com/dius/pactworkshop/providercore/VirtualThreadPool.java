@@ -0,0 +1,90 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Jetty thread pool that starts a new virtual thread for every task, so the number of requests in
+ * flight is not capped by a fixed number of platform threads. Virtual threads need Java 21; the
+ * executor is looked up reflectively so that the project still builds for older targets.
+ * <p>
+ * Virtual threads are always daemon threads. Jetty's own pool keeps the JVM alive with its non-daemon
+ * threads, and Dropwizard relies on that: its main thread returns as soon as the server has started.
+ * This pool therefore holds one non-daemon platform thread from start to stop.
+ */
+public class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool {
+  private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+  private volatile CountDownLatch stopped;
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public int getThreads() {
+    return 0;
+  }
+
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    super.doStart();
+    CountDownLatch latch = new CountDownLatch(1);
+    stopped = latch;
+    Thread keepAlive = new Thread(() -> awaitStop(latch), "virtual-thread-pool-keep-alive");
+    keepAlive.setDaemon(false);
+    keepAlive.start();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+    executor.shutdown();
+    stopped.countDown();
+  }
+
+  private static void awaitStop(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (latch.getCount() > 0) {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Virtual threads need Java 21 or later, this is Java "
+        + System.getProperty("java.version"), e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not create a virtual thread executor", e);
+    }
+  }
+}
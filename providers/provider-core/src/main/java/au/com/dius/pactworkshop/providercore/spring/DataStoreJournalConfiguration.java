@@ -0,0 +1,29 @@
+package au.com.dius.pactworkshop.providercore.spring;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.DataStoreJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Keeps the data in {@code provider.data-store.file} across restarts, for the Spring Boot providers,
+ * which {@code @Import} it. The journal is created eagerly, even with lazy initialization on, so the
+ * data is restored before the first request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "provider.data-store.file")
+public class DataStoreJournalConfiguration {
+
+  @Bean(destroyMethod = "close")
+  @Lazy(false)
+  public DataStoreJournal dataStoreJournal(DataStore dataStore, @Value("${provider.data-store.file}") String file)
+    throws IOException {
+    return DataStoreJournal.open(Paths.get(file), dataStore);
+  }
+}
@@ -0,0 +1,53 @@
+package au.com.dius.pactworkshop.providercore.spring;
+
+import au.com.dius.pactworkshop.providercore.ProviderJsonEncoding;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content negotiation for /provider.json, shared by the Spring MVC and WebFlux providers so that a
+ * client gets the same encoding from either of them.
+ */
+public final class ProviderJsonMediaTypes {
+  private static final ProviderJsonEncoding[] ENCODINGS = ProviderJsonEncoding.values();
+  private static final MediaType[] MEDIA_TYPES = Arrays.stream(ENCODINGS)
+    .map(encoding -> MediaType.valueOf(encoding.getMediaType()))
+    .toArray(MediaType[]::new);
+
+  private ProviderJsonMediaTypes() {
+  }
+
+  public static MediaType of(ProviderJsonEncoding encoding) {
+    return MEDIA_TYPES[encoding.ordinal()];
+  }
+
+  /**
+   * Picks the encoding from the Accept header, falling back to JSON when there is none, it cannot be
+   * parsed or none of the encodings is acceptable.
+   */
+  public static ProviderJsonEncoding negotiate(String accept) {
+    if (accept == null) {
+      return ProviderJsonEncoding.JSON;
+    }
+    List<MediaType> acceptable;
+    try {
+      acceptable = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return ProviderJsonEncoding.JSON;
+    }
+    MediaType.sortBySpecificityAndQuality(acceptable);
+    for (MediaType mediaType : acceptable) {
+      if (mediaType.getQualityValue() > 0) {
+        for (int i = 0; i < MEDIA_TYPES.length; i++) {
+          if (mediaType.includes(MEDIA_TYPES[i])) {
+            return ENCODINGS[i];
+          }
+        }
+      }
+    }
+    return ProviderJsonEncoding.JSON;
+  }
+}
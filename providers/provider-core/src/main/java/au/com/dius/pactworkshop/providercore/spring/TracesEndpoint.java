@@ -0,0 +1,25 @@
+package au.com.dius.pactworkshop.providercore.spring;
+
+import au.com.dius.pactworkshop.tracing.Tracer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Serves the most recent sampled traces as JSON at {@code /actuator/traces}, for the Spring Boot
+ * providers, which {@code @Import} it. {@code ?minMillis=} leaves out the ones that were quicker than
+ * that.
+ */
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+  private final Tracer tracer;
+
+  public TracesEndpoint(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @ReadOperation(produces = "application/json")
+  public String traces(@Nullable Long minMillis) {
+    return tracer.toJson(minMillis == null ? 0 : minMillis);
+  }
+}
@@ -0,0 +1,25 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class BatchWriterTest {
+
+  @Test
+  public void writesRejectedDatesLikeTheSingleEndpointsErrors() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    new BatchWriter(new ProviderJsonRenderer()).write(Arrays.asList("", "a\"b"), new DataStore().getSnapshot(), out);
+
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+      is(equalTo("[{\"error\": \"validDate is required\"},{\"error\": \"'a\\\"b' is not a date\"}]")));
+  }
+}
@@ -0,0 +1,194 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DataStoreJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void restoresTheLatestStateOnReopen() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore)) {
+      dataStore.setDataCount(5);
+      dataStore.addToDataCount(2);
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(7));
+      assertThat(restarted.getVersion(), is(dataStore.getVersion()));
+    }
+  }
+
+  @Test
+  public void leavesANewStoreAloneWhenTheFileIsNew() throws IOException {
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(folder.getRoot().toPath().resolve("data-store"), dataStore)) {
+      assertThat(dataStore.getDataCount(), is(1000));
+      assertThat(dataStore.getVersion(), is(0L));
+    }
+  }
+
+  @Test
+  public void keepsTheLatestStateWhenTheLogWrapsAround() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore)) {
+      for (int i = 0; i < DataStoreJournal.CAPACITY * 2 + 10; i++) {
+        dataStore.addToDataCount(1);
+      }
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(dataStore.getDataCount()));
+      assertThat(restarted.getVersion(), is(dataStore.getVersion()));
+    }
+  }
+
+  @Test
+  public void compactsTheLogOnEveryFlush() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore, Duration.ofMillis(10))) {
+      dataStore.setDataCount(5);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      // start() compacts into generation 1, the first flush after the change into generation 2
+      while (headerGeneration(file, 0) != 2) {
+        assertThat(System.nanoTime() < deadline, is(true));
+        Thread.sleep(10);
+      }
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(5));
+      assertThat(restarted.getVersion(), is(dataStore.getVersion()));
+    }
+  }
+
+  @Test
+  public void skipsATornRecord() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore)) {
+      dataStore.setDataCount(5);
+      dataStore.setDataCount(6);
+    }
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      // the data count of the second record
+      raw.seek(DataStoreJournal.HEADER_SIZE + DataStoreJournal.RECORD_SIZE + 16);
+      raw.writeInt(60);
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(5));
+    }
+  }
+
+  @Test
+  public void keepsTheRecoveredStateWhenStartIsInterruptedBeforeTheOldRecordsAreCleared() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore)) {
+      dataStore.setDataCount(5);
+      dataStore.setDataCount(6);
+    }
+    // what the next start() leaves behind if the machine crashes after forcing the header of generation
+    // 2 but before the cleared records reach the disk: the first record is cleared, the second is not
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      writeHeader(raw, 2, dataStore.getVersion(), 6);
+      raw.seek(DataStoreJournal.HEADER_SIZE);
+      raw.write(new byte[DataStoreJournal.RECORD_SIZE]);
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(6));
+      assertThat(restarted.getVersion(), is(dataStore.getVersion()));
+      restarted.setDataCount(7);
+    }
+
+    DataStore restartedAgain = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restartedAgain)) {
+      assertThat(restartedAgain.getDataCount(), is(7));
+    }
+  }
+
+  @Test
+  public void ignoresRecordsOfALostGeneration() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    DataStore dataStore = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, dataStore)) {
+      dataStore.setDataCount(5);
+    }
+    // a record of generation 2, whose header never reached the disk
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.seek(DataStoreJournal.HEADER_SIZE + DataStoreJournal.RECORD_SIZE);
+      raw.writeLong(2);
+      raw.writeLong(dataStore.getVersion() + 1);
+      raw.writeInt(99);
+      raw.writeInt(checksum(2, dataStore.getVersion() + 1, 99));
+    }
+
+    DataStore restarted = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restarted)) {
+      assertThat(restarted.getDataCount(), is(5));
+    }
+    DataStore restartedAgain = new DataStore();
+    try (DataStoreJournal journal = DataStoreJournal.open(file, restartedAgain)) {
+      assertThat(restartedAgain.getDataCount(), is(5));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void refusesAFileThatIsAlreadyOpen() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("data-store");
+    try (DataStoreJournal journal = DataStoreJournal.open(file, new DataStore())) {
+      DataStoreJournal.open(file, new DataStore());
+    }
+  }
+
+  private static long headerGeneration(Path file, int slot) throws IOException {
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "r")) {
+      raw.seek(slot * DataStoreJournal.HEADER_SLOT_SIZE + 4);
+      return raw.readLong();
+    }
+  }
+
+  private static void writeHeader(RandomAccessFile raw, long generation, long version, int dataCount)
+    throws IOException {
+    raw.seek((generation & 1) * DataStoreJournal.HEADER_SLOT_SIZE);
+    raw.writeInt(DataStoreJournal.MAGIC);
+    raw.writeLong(generation);
+    raw.writeLong(version);
+    raw.writeInt(dataCount);
+    raw.writeInt(checksum(generation, version, dataCount));
+  }
+
+  private static int checksum(long generation, long version, int dataCount) {
+    CRC32 crc = new CRC32();
+    for (long value : new long[] {generation, version, dataCount}) {
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        crc.update((int) (value >>> shift));
+      }
+    }
+    return (int) crc.getValue();
+  }
+}
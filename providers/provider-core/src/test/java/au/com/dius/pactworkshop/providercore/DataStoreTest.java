@@ -0,0 +1,57 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class DataStoreTest {
+
+  @Test
+  public void publishesANewVersionAndNotifiesListenersOnChange() {
+    DataStore dataStore = new DataStore();
+    List<DataStore.Snapshot> changes = new ArrayList<>();
+    dataStore.addListener((previous, current) -> changes.add(current));
+
+    dataStore.setDataCount(10);
+    dataStore.setDataCount(10);
+
+    assertThat(dataStore.getDataCount(), is(10));
+    assertThat(dataStore.getVersion(), is(1L));
+    assertThat(changes, hasSize(1));
+    assertThat(changes.get(0).getDataCount(), is(10));
+  }
+
+  @Test
+  public void concurrentIncrementsAreNotLost() throws InterruptedException {
+    DataStore dataStore = new DataStore();
+    dataStore.setDataCount(0);
+    long startVersion = dataStore.getVersion();
+    AtomicInteger notifications = new AtomicInteger();
+    dataStore.addListener((previous, current) -> notifications.incrementAndGet());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; i++) {
+      executor.execute(() -> {
+        for (int j = 0; j < 10000; j++) {
+          dataStore.addToDataCount(1);
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+
+    assertThat(dataStore.getDataCount(), is(equalTo(80000)));
+    assertThat(dataStore.getVersion(), is(equalTo(startVersion + 80000)));
+    assertThat(notifications.get(), is(80000));
+  }
+}
@@ -0,0 +1,19 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class ErrorBodiesTest {
+
+  @Test
+  public void escapesMessagesThatEchoRequestInput() {
+    byte[] body = ErrorBodies.encode("'a\"b\\c\n' is not a date");
+
+    assertThat(new String(body, StandardCharsets.UTF_8), is(equalTo("{\"error\": \"'a\\\"b\\\\c\\n' is not a date\"}")));
+  }
+}
@@ -0,0 +1,78 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ValidDatesTest {
+  private static final String SYMBOLS = "0123456789-:.Tt+ Z";
+
+  @Test
+  public void acceptsTheFormsLocalDateTimeParseAccepts() {
+    assertThat(ValidDates.isDate("2013-08-16T15:31"), is(true));
+    assertThat(ValidDates.isDate("2013-08-16T15:31:20"), is(true));
+    assertThat(ValidDates.isDate("2013-08-16T15:31:20.123456789"), is(true));
+    assertThat(ValidDates.isDate("2013-08-16t15:31:20"), is(true));
+    assertThat(ValidDates.isDate("2012-02-29T00:00"), is(true));
+    assertThat(ValidDates.isDate("+12013-08-16T15:31"), is(true));
+  }
+
+  @Test
+  public void rejectsMalformedAndOutOfRangeDates() {
+    assertThat(ValidDates.isDate(""), is(false));
+    assertThat(ValidDates.isDate("not a date"), is(false));
+    assertThat(ValidDates.isDate("2013-08-16T15:31:20Z"), is(false));
+    assertThat(ValidDates.isDate("2013-08-16T15:31:20.1234567891"), is(false));
+    assertThat(ValidDates.isDate("2013-13-16T15:31:20"), is(false));
+    assertThat(ValidDates.isDate("2013-02-29T15:31:20"), is(false));
+    assertThat(ValidDates.isDate("1900-02-29T15:31:20"), is(false));
+    assertThat(ValidDates.isDate("2013-08-16T24:00"), is(false));
+    assertThat(ValidDates.isDate("2013-08-16T15:31:60"), is(false));
+    assertThat(ValidDates.isDate("+2013-08-16T15:31"), is(false));
+  }
+
+  @Test
+  public void agreesWithLocalDateTimeParseOnMutatedDates() {
+    Random random = new Random(20131608L);
+    String[] seeds = {"2013-08-16T15:31", "2013-08-16T15:31:20", "2000-02-29T23:59:59.999", "0000-01-01T00:00:00."};
+    for (int i = 0; i < 200_000; i++) {
+      StringBuilder text = new StringBuilder(seeds[random.nextInt(seeds.length)]);
+      int mutations = 1 + random.nextInt(3);
+      for (int m = 0; m < mutations; m++) {
+        int at = random.nextInt(text.length() + 1);
+        char symbol = SYMBOLS.charAt(random.nextInt(SYMBOLS.length()));
+        switch (random.nextInt(3)) {
+          case 0:
+            text.insert(at, symbol);
+            break;
+          case 1:
+            if (at < text.length()) {
+              text.deleteCharAt(at);
+            }
+            break;
+          default:
+            if (at < text.length()) {
+              text.setCharAt(at, symbol);
+            }
+            break;
+        }
+      }
+      String candidate = text.toString();
+      assertThat(candidate, ValidDates.isDate(candidate), is(parses(candidate)));
+    }
+  }
+
+  private static boolean parses(String text) {
+    try {
+      LocalDateTime.parse(text);
+      return true;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package au.com.dius.pactworkshop.providercore;
+
+import au.com.dius.pact.provider.junit5.HttpTestTarget;
+import au.com.dius.pact.provider.junit5.PactVerificationContext;
+import au.com.dius.pact.provider.junit5.PactVerificationInvocationContextProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+/**
+ * Verifies pacts against a {@link ProviderPool}. Interactions run concurrently, each one borrowing a
+ * provider for its state change and request, so a large pact set is not verified one interaction at
+ * a time. Subclasses register the pool, say where the pacts come from and set up the provider states
+ * on {@link #provider()}.
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public abstract class PooledPactVerificationTest<T> {
+  private final ProviderPool<T> pool;
+  private T provider;
+
+  protected PooledPactVerificationTest(ProviderPool<T> pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * The provider borrowed for the current interaction.
+   */
+  protected T provider() {
+    return provider;
+  }
+
+  @BeforeEach
+  public void borrowProvider(PactVerificationContext context) throws InterruptedException {
+    provider = pool.borrow();
+    // there is no context when there are no pacts and the verification is skipped
+    if (context != null) {
+      context.setTarget(new HttpTestTarget("localhost", pool.port(provider)));
+    }
+  }
+
+  @AfterEach
+  public void returnProvider() {
+    pool.giveBack(provider);
+  }
+
+  @TestTemplate
+  @ExtendWith(PactVerificationInvocationContextProvider.class)
+  public void verifyInteraction(PactVerificationContext context) {
+    if (context != null) {
+      context.verifyInteraction();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package au.com.dius.pactworkshop.providercore;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A pool of whole provider applications, each on its own ephemeral port with its own
+ * {@link DataStore}, for tests that run concurrently. Registered as a static extension, it starts
+ * the providers before the test class and stops them after it. The pool size is the
+ * {@code pactVerificationInstances} system property, defaulting to {@link #DEFAULT_INSTANCES}, as each
+ * instance is a whole application; with a single instance the tests take turns.
+ */
+public final class ProviderPool<T> implements BeforeAllCallback, AfterAllCallback {
+  public static final int DEFAULT_INSTANCES = 4;
+
+  /**
+   * Starts one provider, listening on an ephemeral port.
+   */
+  public interface Starter<T> {
+    T start() throws Exception;
+  }
+
+  private final Starter<T> starter;
+  private final Consumer<T> stopper;
+  private final ToIntFunction<T> port;
+  private final List<T> providers = new ArrayList<>();
+  private BlockingQueue<T> available;
+
+  public ProviderPool(Starter<T> starter, Consumer<T> stopper, ToIntFunction<T> port) {
+    this.starter = starter;
+    this.stopper = stopper;
+    this.port = port;
+  }
+
+  @Override
+  public void beforeAll(ExtensionContext context) throws Exception {
+    int instances = Integer.getInteger("pactVerificationInstances", DEFAULT_INSTANCES);
+    available = new ArrayBlockingQueue<>(instances);
+    for (int i = 0; i < instances; i++) {
+      T provider = starter.start();
+      providers.add(provider);
+      available.add(provider);
+    }
+  }
+
+  @Override
+  public void afterAll(ExtensionContext context) {
+    providers.forEach(stopper);
+    providers.clear();
+  }
+
+  /**
+   * Takes a provider for the caller's exclusive use, waiting for one to be returned if need be.
+   */
+  public T borrow() throws InterruptedException {
+    return available.take();
+  }
+
+  public void giveBack(T provider) {
+    available.add(provider);
+  }
+
+  public int port(T provider) {
+    return port.applyAsInt(provider);
+  }
+}
@@ -0,0 +1,69 @@
+package au.com.dius.pactworkshop.springbootprovider;
+
+import au.com.dius.pactworkshop.consumer.Client;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RootController#providerJson} directly and end to end through {@link Client} against an
+ * embedded server on an ephemeral loopback port. {@code virtualThreads} selects Jetty's default thread
+ * pool; virtual threads need the benchmarks to run on Java 21, so they are only measured when asked
+ * for with {@code -PjmhParams=virtualThreads=false,true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RootControllerBenchmark {
+
+  @Param({"false"})
+  private String virtualThreads;
+
+  private ConfigurableApplicationContext context;
+  private RootController controller;
+  private Client client;
+  private String validDate;
+
+  @Setup
+  public void startProvider() {
+    context = new SpringApplicationBuilder(MainApplication.class)
+      .properties("server.port=0", "provider.virtual-threads=" + virtualThreads)
+      .run();
+
+    controller = context.getBean(RootController.class);
+    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    client = new Client("http://localhost:" + port);
+    validDate = LocalDateTime.now().toString();
+    context.getBean(DataStore.class).setDataCount(1000);
+  }
+
+  @TearDown
+  public void stopProvider() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] inProcess() {
+    return controller.providerJson(validDate, null).getBody();
+  }
+
+  @Benchmark
+  public List<Object> loopback() throws UnirestException {
+    return client.fetchAndProcessData(validDate);
+  }
+}
@@ -0,0 +1,85 @@
+package au.com.dius.pactworkshop.springbootprovider;
+
+import au.com.dius.pactworkshop.providercore.CoalescingChangeListener;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Streams {@link DataStore} changes as server-sent events, so consumers can hold one connection open
+ * instead of polling /provider.json. Every subscriber first gets the current snapshot, then one
+ * {@code data} event per coalesced burst of changes, with the snapshot version as the event id. A
+ * comment is sent every {@link #HEARTBEAT} so idle connections are not timed out.
+ */
+@RestController
+public class DataStoreEventsController {
+  static final Duration COALESCING_WINDOW = Duration.ofMillis(50);
+  static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+  private final DataStore dataStore;
+  private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "data-store-events");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public DataStoreEventsController(DataStore dataStore) {
+    this.dataStore = dataStore;
+    dataStore.addListener(new CoalescingChangeListener(dataStore, scheduler, COALESCING_WINDOW,
+      snapshot -> broadcast(() -> event(snapshot))));
+    scheduler.scheduleAtFixedRate(() -> broadcast(() -> SseEmitter.event().comment("heartbeat")),
+      HEARTBEAT.toMillis(), HEARTBEAT.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @GetMapping(value = "/provider/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe() throws IOException {
+    SseEmitter emitter = new SseEmitter(0L);
+    emitter.onCompletion(() -> emitters.remove(emitter));
+    emitter.onTimeout(() -> emitters.remove(emitter));
+    emitter.onError(e -> emitters.remove(emitter));
+    // registered before the current snapshot is sent, so a change in between is not lost
+    emitters.add(emitter);
+    emitter.send(event(dataStore.getSnapshot()));
+    return emitter;
+  }
+
+  @PreDestroy
+  public void close() {
+    scheduler.shutdownNow();
+    emitters.forEach(SseEmitter::complete);
+  }
+
+  /**
+   * Sends an event to every subscriber. Event builders can only be sent once, hence the supplier.
+   */
+  private void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+    for (SseEmitter emitter : emitters) {
+      try {
+        emitter.send(event.get());
+      } catch (IOException | IllegalStateException e) {
+        // the subscriber has gone away
+        emitters.remove(emitter);
+      }
+    }
+  }
+
+  private static SseEmitter.SseEventBuilder event(DataStore.Snapshot snapshot) {
+    return SseEmitter.event()
+      .id(Long.toString(snapshot.getVersion()))
+      .name("data")
+      .data("{\"version\":" + snapshot.getVersion() + ",\"count\":" + snapshot.getDataCount() + "}", MediaType.TEXT_PLAIN);
+  }
+}
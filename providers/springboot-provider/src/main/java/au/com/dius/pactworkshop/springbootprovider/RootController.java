@@ -1,40 +1,66 @@
 package au.com.dius.pactworkshop.springbootprovider;
 
-import org.apache.commons.lang3.StringUtils;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.ProviderJsonEncoding;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import au.com.dius.pactworkshop.providercore.ProviderJsonRenderer;
+import au.com.dius.pactworkshop.providercore.spring.ProviderJsonMediaTypes;
+import au.com.dius.pactworkshop.tracing.Span;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.Serializable;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
+/**
+ * Spring MVC adapter for {@link ProviderJsonHandler}: negotiates the encoding from the Accept header
+ * and leaves conditional requests to Spring.
+ */
 @RestController
 public class RootController {
+  private final ProviderJsonHandler handler;
+  private final ProviderJsonMetrics metrics;
+
+  public RootController(ProviderJsonHandler handler, MeterRegistry meterRegistry) {
+    this.handler = handler;
+    this.metrics = new ProviderJsonMetrics(meterRegistry);
+  }
 
   @RequestMapping("/provider.json")
-  public Map<String, Serializable> providerJson(@RequestParam(required = false) String validDate) {
-    if (StringUtils.isNotEmpty(validDate)) {
-      if (DataStore.INSTANCE.getDataCount() > 0) {
-        try {
-          LocalDateTime validTime = LocalDateTime.parse(validDate);
-          Map<String, Serializable> map = new HashMap<>(3);
-          map.put("test", "NO");
-          map.put("validDate", OffsetDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXX")));
-          map.put("count", DataStore.INSTANCE.getDataCount());
-          return map;
-        } catch (DateTimeParseException e) {
-          throw new InvalidQueryParameterException("'" + validDate + "' is not a date", e);
-        }
-      } else {
-        throw new NoDataException();
-      }
-    } else {
-      throw new QueryParameterRequiredException("validDate is required");
-    }
+  public ResponseEntity<byte[]> providerJson(@RequestParam(required = false) String validDate,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    return metrics.record(() -> render(validDate, accept));
+  }
+
+  private ResponseEntity<byte[]> render(String validDate, String accept) {
+    ProviderJsonRenderer.Body body = handler.providerJson(validDate);
+    Span span = Span.current().startChild("negotiate");
+    ProviderJsonEncoding encoding = ProviderJsonMediaTypes.negotiate(accept);
+    span.setAttribute("encoding", encoding).end();
+    // If-None-Match / If-Modified-Since are evaluated against these validators by Spring,
+    // which answers 304 Not Modified without writing the body
+    return ResponseEntity.ok()
+      .contentType(ProviderJsonMediaTypes.of(encoding))
+      .varyBy(HttpHeaders.ACCEPT)
+      .eTag(body.getEntityTag(encoding))
+      .lastModified(body.getLastModified())
+      .body(body.getBytes(encoding));
+  }
+
+  @PostMapping(value = "/provider/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> providerBatch(@RequestBody List<String> validDates) {
+    DataStore.Snapshot snapshot = handler.batchSnapshot(validDates);
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(output -> handler.writeBatch(validDates, snapshot, output));
   }
 }
@@ -1,5 +1,9 @@
 package au.com.dius.pactworkshop.springbootprovider;
 
+import au.com.dius.pactworkshop.providercore.InvalidQueryParameterException;
+import au.com.dius.pactworkshop.providercore.NoDataException;
+import au.com.dius.pactworkshop.providercore.QueryParameterRequiredException;
+import au.com.dius.pactworkshop.tracing.Span;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -9,21 +13,45 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import javax.servlet.http.HttpServletRequest;
-
 @ControllerAdvice(basePackageClasses = RootController.class)
 public class RootControllerAdvice extends ResponseEntityExceptionHandler {
-  @ExceptionHandler({InvalidQueryParameterException.class, QueryParameterRequiredException.class})
+  private static final ResponseEntity<Void> NOT_FOUND = ResponseEntity.notFound().build();
+  private static final HttpHeaders JSON_HEADERS = new HttpHeaders();
+
+  static {
+    JSON_HEADERS.setContentType(MediaType.APPLICATION_JSON);
+  }
+
+  @ExceptionHandler(InvalidQueryParameterException.class)
+  @ResponseBody
+  public ResponseEntity<byte[]> handleInvalidQueryParameter(InvalidQueryParameterException ex) {
+    Span span = Span.current().startChild("handleInvalidQueryParameter").recordException(ex);
+    try {
+      return new ResponseEntity<>(ex.getBody(), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    } finally {
+      span.end();
+    }
+  }
+
+  @ExceptionHandler(QueryParameterRequiredException.class)
   @ResponseBody
-  public ResponseEntity<String> handleControllerException(HttpServletRequest request, Throwable ex) {
-    HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(MediaType.APPLICATION_JSON);
-    return new ResponseEntity<>("{\"error\": \"" + ex.getMessage() + "\"}", headers, HttpStatus.BAD_REQUEST);
+  public ResponseEntity<byte[]> handleQueryParameterRequired(QueryParameterRequiredException ex) {
+    Span span = Span.current().startChild("handleQueryParameterRequired").recordException(ex);
+    try {
+      return new ResponseEntity<>(ex.getBody(), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    } finally {
+      span.end();
+    }
   }
 
   @ExceptionHandler(NoDataException.class)
   @ResponseBody
-  ResponseEntity handleNoDataException(HttpServletRequest request, Throwable ex) {
-    return new ResponseEntity(HttpStatus.NOT_FOUND);
+  ResponseEntity<Void> handleNoDataException(NoDataException ex) {
+    Span span = Span.current().startChild("handleNoDataException").recordException(ex);
+    try {
+      return NOT_FOUND;
+    } finally {
+      span.end();
+    }
   }
 }
@@ -0,0 +1,65 @@
+package au.com.dius.pactworkshop.springbootprovider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.context.event.SpringApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times each phase of startup, from JVM start until the application is ready to serve, and logs them
+ * once it is ready (logging is only configured part way through). With
+ * {@code provider.exit-after-startup=true} the application then exits, which is how the
+ * {@code cdsArchive} task records the classes loaded during startup.
+ */
+class StartupTimingListener implements ApplicationListener<SpringApplicationEvent> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimingListener.class);
+
+  private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  @Override
+  public void onApplicationEvent(SpringApplicationEvent event) {
+    if (event instanceof ApplicationStartingEvent) {
+      phase("jvm");
+    } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+      phase("environment");
+    } else if (event instanceof ApplicationContextInitializedEvent) {
+      phase("context-initialized");
+    } else if (event instanceof ApplicationPreparedEvent) {
+      phase("context-prepared");
+    } else if (event instanceof ApplicationStartedEvent) {
+      phase("context-refreshed");
+    } else if (event instanceof ApplicationReadyEvent) {
+      phase("ready");
+      log();
+      ApplicationReadyEvent ready = (ApplicationReadyEvent) event;
+      if (ready.getApplicationContext().getEnvironment().getProperty("provider.exit-after-startup", Boolean.class, false)) {
+        System.exit(SpringApplication.exit(ready.getApplicationContext()));
+      }
+    }
+  }
+
+  private void phase(String name) {
+    phases.put(name, System.currentTimeMillis());
+  }
+
+  private void log() {
+    long previous = jvmStart;
+    for (Map.Entry<String, Long> phase : phases.entrySet()) {
+      long end = phase.getValue();
+      LOGGER.info("event=startup phase={} phaseMs={} sinceJvmStartMs={}", phase.getKey(), end - previous, end - jvmStart);
+      previous = end;
+    }
+  }
+}
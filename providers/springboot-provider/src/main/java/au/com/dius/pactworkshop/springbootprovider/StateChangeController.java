@@ -1,5 +1,6 @@
 package au.com.dius.pactworkshop.springbootprovider;
 
+import au.com.dius.pactworkshop.providercore.DataStore;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -12,12 +13,18 @@ import java.util.Map;
 @RestController
 @Profile("test")
 public class StateChangeController {
+  private final DataStore dataStore;
+
+  public StateChangeController(DataStore dataStore) {
+    this.dataStore = dataStore;
+  }
+
   @RequestMapping(value = "/pactStateChange", method = RequestMethod.POST)
   public Map providerState(@RequestBody Map body) {
     if (body.get("state").equals("data count > 0")) {
-      DataStore.INSTANCE.setDataCount(1000);
+      dataStore.setDataCount(1000);
     } else if (body.get("state").equals("data count == 0")) {
-      DataStore.INSTANCE.setDataCount(0);
+      dataStore.setDataCount(0);
     }
     return Collections.emptyMap();
   }
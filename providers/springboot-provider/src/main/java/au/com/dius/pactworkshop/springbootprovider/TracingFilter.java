@@ -0,0 +1,92 @@
+package au.com.dius.pactworkshop.springbootprovider;
+
+import au.com.dius.pactworkshop.tracing.Span;
+import au.com.dius.pactworkshop.tracing.Tracer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Starts a span for every request before the DispatcherServlet sees it, continuing the caller's trace
+ * from its {@code traceparent} header. The span is current on the request thread until the response
+ * has been written, so the controllers, the handler and the advice can add their own spans to it.
+ * Actuator requests are not traced.
+ * <p>
+ * Requests that go asynchronous, such as the streamed batch answer and the event stream, return from
+ * the first dispatch before their body is written. Their span is ended by an {@link AsyncListener}
+ * once the async request completes, so that it covers the whole response and its final status.
+ */
+@Component
+public class TracingFilter extends OncePerRequestFilter {
+  private final Tracer tracer;
+
+  public TracingFilter(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return request.getRequestURI().startsWith("/actuator/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+    throws ServletException, IOException {
+    Span span = tracer.startSpan(request.getMethod(), request.getRequestURI(), request.getHeader("traceparent"));
+    boolean async = false;
+    try (Span.Scope scope = span.makeCurrent()) {
+      chain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new EndSpanListener(span, response));
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        span.setAttribute("http.status", response.getStatus());
+        span.end();
+      }
+    }
+  }
+
+  private static final class EndSpanListener implements AsyncListener {
+    private final Span span;
+    private final HttpServletResponse response;
+
+    EndSpanListener(Span span, HttpServletResponse response) {
+      this.span = span;
+      this.response = response;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      span.setAttribute("http.status", response.getStatus());
+      span.end();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      if (event.getThrowable() != null) {
+        span.recordException(event.getThrowable());
+      }
+      onComplete(event);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows once the timeout has been handled
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // starting async again drops the listeners, so stay registered for the new cycle
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
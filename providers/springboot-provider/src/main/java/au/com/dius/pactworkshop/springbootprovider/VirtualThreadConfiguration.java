@@ -0,0 +1,36 @@
+package au.com.dius.pactworkshop.springbootprovider;
+
+import au.com.dius.pactworkshop.providercore.VirtualThreadPool;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Runs request handling on virtual threads when {@code provider.virtual-threads=true}. The customizer
+ * is ordered last so that it replaces the pool configured from the {@code server.jetty.threads.*}
+ * properties.
+ */
+@Configuration
+@ConditionalOnProperty(name = "provider.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+  @Bean
+  public WebServerFactoryCustomizer<JettyServletWebServerFactory> virtualThreadCustomizer() {
+    return new VirtualThreadCustomizer();
+  }
+
+  static class VirtualThreadCustomizer implements WebServerFactoryCustomizer<JettyServletWebServerFactory>, Ordered {
+    @Override
+    public void customize(JettyServletWebServerFactory factory) {
+      factory.setThreadPool(new VirtualThreadPool());
+    }
+
+    @Override
+    public int getOrder() {
+      return Ordered.LOWEST_PRECEDENCE;
+    }
+  }
+}
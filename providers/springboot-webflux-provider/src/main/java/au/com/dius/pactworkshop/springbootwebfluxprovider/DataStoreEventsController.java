@@ -0,0 +1,76 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.CoalescingChangeListener;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Streams {@link DataStore} changes as server-sent events, so consumers can hold one connection open
+ * instead of polling /provider.json. Every subscriber first gets the current snapshot, then one
+ * {@code data} event per coalesced burst of changes, with the snapshot version as the event id. A
+ * comment is sent every {@link #HEARTBEAT} so idle connections are not timed out. A subscriber that
+ * cannot keep up only gets the latest snapshot once it can.
+ */
+@RestController
+public class DataStoreEventsController {
+  static final Duration COALESCING_WINDOW = Duration.ofMillis(50);
+  static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+  private final DataStore dataStore;
+  private final DirectProcessor<DataStore.Snapshot> changes = DirectProcessor.create();
+  private final FluxSink<DataStore.Snapshot> changeSink = changes.sink();
+  private final CoalescingChangeListener listener;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "data-store-events");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public DataStoreEventsController(DataStore dataStore) {
+    this.dataStore = dataStore;
+    this.listener = new CoalescingChangeListener(dataStore, scheduler, COALESCING_WINDOW, changeSink::next);
+    dataStore.addListener(listener);
+  }
+
+  @GetMapping(value = "/provider/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<String>> subscribe() {
+    Flux<DataStore.Snapshot> snapshots = Flux.<DataStore.Snapshot>create(sink -> {
+      // subscribed to before the current snapshot is sent, so a change in between is not lost
+      Disposable subscription = changes.subscribe(sink::next, sink::error, sink::complete);
+      sink.onDispose(subscription);
+      sink.next(dataStore.getSnapshot());
+    }, FluxSink.OverflowStrategy.LATEST)
+      .distinctUntilChanged(DataStore.Snapshot::getVersion);
+    Flux<ServerSentEvent<String>> heartbeats = Flux.interval(HEARTBEAT)
+      .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build());
+    return Flux.merge(snapshots.map(DataStoreEventsController::event), heartbeats)
+      .takeUntilOther(changes.ignoreElements());
+  }
+
+  @PreDestroy
+  public void close() {
+    dataStore.removeListener(listener);
+    scheduler.shutdownNow();
+    changeSink.complete();
+  }
+
+  private static ServerSentEvent<String> event(DataStore.Snapshot snapshot) {
+    return ServerSentEvent.<String>builder()
+      .id(Long.toString(snapshot.getVersion()))
+      .event("data")
+      .data("{\"version\":" + snapshot.getVersion() + ",\"count\":" + snapshot.getDataCount() + "}")
+      .build();
+  }
+}
@@ -0,0 +1,40 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.spring.DataStoreJournalConfiguration;
+import au.com.dius.pactworkshop.providercore.spring.TracesEndpoint;
+import au.com.dius.pactworkshop.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+@SpringBootApplication
+@Import({DataStoreJournalConfiguration.class, TracesEndpoint.class})
+public class MainApplication {
+
+  @Bean
+  public DataStore dataStore() {
+    return new DataStore();
+  }
+
+  @Bean
+  public ProviderJsonHandler providerJsonHandler(DataStore dataStore) {
+    return new ProviderJsonHandler(dataStore);
+  }
+
+  /**
+   * Traces {@code provider.tracing.sample-rate} of the requests that do not carry a {@code traceparent}
+   * header.
+   */
+  @Bean
+  public Tracer tracer(@Value("${provider.tracing.sample-rate:0.01}") double sampleRate) {
+    return new Tracer(sampleRate);
+  }
+
+  public static void main(String[] args) {
+    SpringApplication.run(MainApplication.class, args);
+  }
+}
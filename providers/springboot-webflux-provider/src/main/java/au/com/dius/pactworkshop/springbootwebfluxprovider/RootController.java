@@ -0,0 +1,89 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.ProviderJsonEncoding;
+import au.com.dius.pactworkshop.providercore.ProviderJsonHandler;
+import au.com.dius.pactworkshop.providercore.ProviderJsonMetrics;
+import au.com.dius.pactworkshop.providercore.ProviderJsonRenderer;
+import au.com.dius.pactworkshop.providercore.spring.ProviderJsonMediaTypes;
+import au.com.dius.pactworkshop.tracing.Span;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * WebFlux adapter for {@link ProviderJsonHandler}, the counterpart of the servlet provider's
+ * RootController: negotiates the encoding from the Accept header in the same way and leaves
+ * conditional requests to WebFlux. Rendering never blocks (the body comes from the handler's cached output), so it
+ * runs directly on the Netty event loop instead of being handed off to a worker thread.
+ */
+@RestController
+public class RootController {
+
+  private final ProviderJsonHandler handler;
+  private final ProviderJsonMetrics metrics;
+
+  public RootController(ProviderJsonHandler handler, MeterRegistry meterRegistry) {
+    this.handler = handler;
+    this.metrics = new ProviderJsonMetrics(meterRegistry);
+  }
+
+  @RequestMapping("/provider.json")
+  public Mono<ResponseEntity<byte[]>> providerJson(@RequestParam(required = false) String validDate,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    return TracingWebFilter.span().map(span -> {
+      // current only while rendering, which is all the handler needs
+      try (Span.Scope scope = span.makeCurrent()) {
+        return metrics.record(() -> render(validDate, accept));
+      }
+    });
+  }
+
+  private ResponseEntity<byte[]> render(String validDate, String accept) {
+    ProviderJsonRenderer.Body body = handler.providerJson(validDate);
+    Span span = Span.current().startChild("negotiate");
+    ProviderJsonEncoding encoding = ProviderJsonMediaTypes.negotiate(accept);
+    span.setAttribute("encoding", encoding).end();
+    // If-None-Match / If-Modified-Since are evaluated against these validators by WebFlux,
+    // which answers 304 Not Modified without writing the body
+    return ResponseEntity.ok()
+      .contentType(ProviderJsonMediaTypes.of(encoding))
+      .varyBy(HttpHeaders.ACCEPT)
+      .eTag(body.getEntityTag(encoding))
+      .lastModified(body.getLastModified())
+      .body(body.getBytes(encoding));
+  }
+
+  @PostMapping(value = "/provider/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<byte[]>> providerBatch(@RequestBody List<String> validDates) {
+    return Mono.fromSupplier(() -> {
+      DataStore.Snapshot snapshot = handler.batchSnapshot(validDates);
+      return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(writeBatch(validDates, snapshot));
+    });
+  }
+
+  private byte[] writeBatch(List<String> validDates, DataStore.Snapshot snapshot) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      handler.writeBatch(validDates, snapshot, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+}
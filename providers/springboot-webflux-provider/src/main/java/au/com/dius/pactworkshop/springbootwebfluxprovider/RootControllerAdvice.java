@@ -0,0 +1,55 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.InvalidQueryParameterException;
+import au.com.dius.pactworkshop.providercore.NoDataException;
+import au.com.dius.pactworkshop.providercore.QueryParameterRequiredException;
+import au.com.dius.pactworkshop.tracing.Span;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ServerWebExchange;
+
+@RestControllerAdvice(basePackageClasses = RootController.class)
+public class RootControllerAdvice {
+  private static final ResponseEntity<Void> NOT_FOUND = ResponseEntity.notFound().build();
+  private static final HttpHeaders JSON_HEADERS = new HttpHeaders();
+
+  static {
+    JSON_HEADERS.setContentType(MediaType.APPLICATION_JSON);
+  }
+
+  @ExceptionHandler(InvalidQueryParameterException.class)
+  public ResponseEntity<byte[]> handleInvalidQueryParameter(InvalidQueryParameterException ex,
+                                                            ServerWebExchange exchange) {
+    Span span = TracingWebFilter.span(exchange).startChild("handleInvalidQueryParameter").recordException(ex);
+    try {
+      return new ResponseEntity<>(ex.getBody(), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    } finally {
+      span.end();
+    }
+  }
+
+  @ExceptionHandler(QueryParameterRequiredException.class)
+  public ResponseEntity<byte[]> handleQueryParameterRequired(QueryParameterRequiredException ex,
+                                                             ServerWebExchange exchange) {
+    Span span = TracingWebFilter.span(exchange).startChild("handleQueryParameterRequired").recordException(ex);
+    try {
+      return new ResponseEntity<>(ex.getBody(), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    } finally {
+      span.end();
+    }
+  }
+
+  @ExceptionHandler(NoDataException.class)
+  ResponseEntity<Void> handleNoDataException(NoDataException ex, ServerWebExchange exchange) {
+    Span span = TracingWebFilter.span(exchange).startChild("handleNoDataException").recordException(ex);
+    try {
+      return NOT_FOUND;
+    } finally {
+      span.end();
+    }
+  }
+}
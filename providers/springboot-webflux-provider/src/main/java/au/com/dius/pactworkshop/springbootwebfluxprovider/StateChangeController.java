@@ -0,0 +1,31 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@Profile("test")
+public class StateChangeController {
+  private final DataStore dataStore;
+
+  public StateChangeController(DataStore dataStore) {
+    this.dataStore = dataStore;
+  }
+
+  @PostMapping("/pactStateChange")
+  public Mono<Map> providerState(@RequestBody Map body) {
+    if (body.get("state").equals("data count > 0")) {
+      dataStore.setDataCount(1000);
+    } else if (body.get("state").equals("data count == 0")) {
+      dataStore.setDataCount(0);
+    }
+    return Mono.just(Collections.emptyMap());
+  }
+}
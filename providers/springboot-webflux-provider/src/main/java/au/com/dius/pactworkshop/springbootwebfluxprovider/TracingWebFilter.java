@@ -0,0 +1,61 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.tracing.Span;
+import au.com.dius.pactworkshop.tracing.Tracer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Starts a span for every request, continuing the caller's trace from its {@code traceparent}
+ * header, and ends it when the exchange completes. A request may move between threads, so the span
+ * is not made current. It is kept in the subscriber context for the controllers, which read it with
+ * {@link #span()}, and in an exchange attribute for the advice, which reads it with
+ * {@link #span(ServerWebExchange)}. Actuator requests are not traced.
+ */
+@Component
+public class TracingWebFilter implements WebFilter {
+  private static final String SPAN = TracingWebFilter.class.getName() + ".span";
+
+  private final Tracer tracer;
+
+  public TracingWebFilter(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  /**
+   * The request's span, or {@link Span#NOOP} if it is not sampled.
+   */
+  static Mono<Span> span() {
+    return Mono.subscriberContext().map(context -> context.getOrDefault(SPAN, Span.NOOP));
+  }
+
+  static Span span(ServerWebExchange exchange) {
+    return exchange.getAttributeOrDefault(SPAN, Span.NOOP);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    String path = exchange.getRequest().getPath().value();
+    if (path.startsWith("/actuator/")) {
+      return chain.filter(exchange);
+    }
+    Span span = tracer.startSpan(exchange.getRequest().getMethodValue(), path,
+      exchange.getRequest().getHeaders().getFirst("traceparent"));
+    if (!span.isRecording()) {
+      return chain.filter(exchange);
+    }
+    exchange.getAttributes().put(SPAN, span);
+    return chain.filter(exchange)
+      .subscriberContext(Context.of(SPAN, span))
+      .doFinally(signal -> {
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        span.setAttribute("http.status", status == null ? 200 : status.value());
+        span.end();
+      });
+  }
+}
@@ -0,0 +1,52 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+/**
+ * The first event is the current snapshot and each change follows as its own event, like the servlet
+ * provider's stream that {@code Client.subscribe()} reads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class DataStoreEventsControllerTest {
+
+  @Autowired
+  private WebTestClient client;
+
+  @Autowired
+  private DataStore dataStore;
+
+  @AfterEach
+  public void restoreData() {
+    dataStore.setDataCount(1000);
+  }
+
+  @Test
+  public void pushesTheCurrentSnapshotAndThenEachChange() {
+    Flux<ServerSentEvent<String>> events = client.get().uri("/provider/events")
+      .accept(MediaType.TEXT_EVENT_STREAM)
+      .exchange()
+      .expectStatus().isOk()
+      .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() { })
+      .getResponseBody();
+
+    StepVerifier.create(events)
+      .expectNextMatches(event -> "data".equals(event.event())
+        && event.id().equals(Long.toString(dataStore.getVersion())))
+      .then(() -> dataStore.setDataCount(7))
+      .expectNextMatches(event -> "data".equals(event.event()) && event.data().endsWith("\"count\":7}"))
+      .thenCancel()
+      .verify(Duration.ofSeconds(10));
+  }
+}
@@ -0,0 +1,43 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pact.provider.junitsupport.IgnoreNoPactsToVerify;
+import au.com.dius.pact.provider.junitsupport.Provider;
+import au.com.dius.pact.provider.junitsupport.State;
+import au.com.dius.pact.provider.junitsupport.loader.PactFolder;
+import au.com.dius.pactworkshop.providercore.DataStore;
+import au.com.dius.pactworkshop.providercore.PooledPactVerificationTest;
+import au.com.dius.pactworkshop.providercore.ProviderPool;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Verifies the pacts copied into build/pacts by {@code publishWorkshopPact} against a
+ * {@link ProviderPool} of applications. {@code pactVerify} still verifies against a single spawned
+ * provider.
+ */
+@Provider("Our Provider")
+@PactFolder("build/pacts")
+@IgnoreNoPactsToVerify
+public class PactVerificationTest extends PooledPactVerificationTest<ConfigurableApplicationContext> {
+  @RegisterExtension
+  static final ProviderPool<ConfigurableApplicationContext> PROVIDERS = new ProviderPool<>(
+    () -> new SpringApplicationBuilder(MainApplication.class).properties("server.port=0").run(),
+    ConfigurableApplicationContext::close,
+    provider -> ((WebServerApplicationContext) provider).getWebServer().getPort());
+
+  public PactVerificationTest() {
+    super(PROVIDERS);
+  }
+
+  @State("data count > 0")
+  public void dataCountGreaterThanZero() {
+    provider().getBean(DataStore.class).setDataCount(1000);
+  }
+
+  @State("data count == 0")
+  public void dataCountZero() {
+    provider().getBean(DataStore.class).setDataCount(0);
+  }
+}
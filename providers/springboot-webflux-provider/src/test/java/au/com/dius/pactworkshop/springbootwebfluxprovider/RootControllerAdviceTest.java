@@ -0,0 +1,56 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import au.com.dius.pactworkshop.providercore.DataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * The error mapping of {@link RootControllerAdvice}. The pact checks the same answers as JSON; these
+ * also pin the content type and the exact bytes of the shared error bodies.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RootControllerAdviceTest {
+
+  @Autowired
+  private WebTestClient client;
+
+  @Autowired
+  private DataStore dataStore;
+
+  @AfterEach
+  public void restoreData() {
+    dataStore.setDataCount(1000);
+  }
+
+  @Test
+  public void aMissingValidDateIsABadRequest() {
+    client.get().uri("/provider.json")
+      .exchange()
+      .expectStatus().isBadRequest()
+      .expectHeader().contentType(MediaType.APPLICATION_JSON)
+      .expectBody(String.class).isEqualTo("{\"error\": \"validDate is required\"}");
+  }
+
+  @Test
+  public void aValidDateThatIsNotADateIsABadRequest() {
+    client.get().uri("/provider.json?validDate=not-a-date")
+      .exchange()
+      .expectStatus().isBadRequest()
+      .expectHeader().contentType(MediaType.APPLICATION_JSON)
+      .expectBody(String.class).isEqualTo("{\"error\": \"'not-a-date' is not a date\"}");
+  }
+
+  @Test
+  public void noDataIsNotFound() {
+    dataStore.setDataCount(0);
+
+    client.get().uri("/provider.json?validDate=2020-01-01T10:00:00")
+      .exchange()
+      .expectStatus().isNotFound()
+      .expectBody().isEmpty();
+  }
+}
@@ -0,0 +1,52 @@
+package au.com.dius.pactworkshop.springbootwebfluxprovider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * The encoding negotiation of {@link RootController}, which the pact does not cover as it only asks
+ * for JSON.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RootControllerTest {
+  private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+  @Autowired
+  private WebTestClient client;
+
+  @Test
+  public void servesSmileToClientsThatAskForIt() throws IOException {
+    byte[] body = client.get().uri("/provider.json?validDate=2020-01-01T10:00:00")
+      .accept(SMILE, MediaType.APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().contentType(SMILE)
+      .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+      .expectBody(byte[].class).returnResult().getResponseBody();
+
+    JsonNode data = new ObjectMapper(new SmileFactory()).readTree(body);
+    assertThat(data.get("test").asText(), is("NO"));
+    assertThat(data.get("count").isInt(), is(true));
+  }
+
+  @Test
+  public void servesJsonByDefault() {
+    client.get().uri("/provider.json?validDate=2020-01-01T10:00:00")
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().contentType(MediaType.APPLICATION_JSON)
+      .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+  }
+}
@@ -0,0 +1,232 @@
+package au.com.dius.pactworkshop.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed operation within a trace. The first span a {@link Tracer} starts for a request is its root;
+ * spans started from it are collected into the root as they end, and the root is handed to the tracer
+ * as one trace when it ends itself.
+ * <p>
+ * Unsampled requests all share {@link #NOOP}, on which every method returns straight away, so code can
+ * be instrumented unconditionally.
+ */
+public final class Span {
+  /**
+   * The span of an unsampled request. It records nothing and starts no children.
+   */
+  public static final Span NOOP = new Span(null, null, "", 0, 0, 0, 0, 0, 0);
+
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+  private static final Scope NOOP_SCOPE = () -> {
+  };
+
+  private final Tracer tracer;
+  private final Span root;
+  private final String name;
+  private final long traceIdHigh;
+  private final long traceIdLow;
+  private final long spanId;
+  private final long parentId;
+  private final long startNanos;
+  private final long startEpochMicros;
+  private final List<Span> children;
+  private Map<String, String> attributes;
+  private volatile long durationNanos = -1;
+
+  private Span(Tracer tracer, Span root, String name, long traceIdHigh, long traceIdLow, long spanId, long parentId,
+               long startNanos, long startEpochMicros) {
+    this.tracer = tracer;
+    this.root = root == null ? this : root;
+    this.name = name;
+    this.traceIdHigh = traceIdHigh;
+    this.traceIdLow = traceIdLow;
+    this.spanId = spanId;
+    this.parentId = parentId;
+    this.startNanos = startNanos;
+    this.startEpochMicros = startEpochMicros;
+    this.children = root == null ? new ArrayList<>() : null;
+  }
+
+  static Span root(Tracer tracer, String name, TraceContext parent) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long traceIdHigh = parent != null ? parent.traceIdHigh : random.nextLong();
+    long traceIdLow = parent != null ? parent.traceIdLow : nonZero(random);
+    return new Span(tracer, null, name, traceIdHigh, traceIdLow, nonZero(random), parent != null ? parent.parentId : 0,
+      System.nanoTime(), TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+  }
+
+  /**
+   * The span made current on this thread by {@link #makeCurrent()}, or {@link #NOOP}.
+   */
+  public static Span current() {
+    Span current = CURRENT.get();
+    return current == null ? NOOP : current;
+  }
+
+  public boolean isRecording() {
+    return this != NOOP;
+  }
+
+  public Span startChild(String childName) {
+    if (this == NOOP) {
+      return NOOP;
+    }
+    long now = System.nanoTime();
+    return new Span(tracer, root, childName, traceIdHigh, traceIdLow, nonZero(ThreadLocalRandom.current()), spanId,
+      now, root.startEpochMicros + TimeUnit.NANOSECONDS.toMicros(now - root.startNanos));
+  }
+
+  public Span setAttribute(String key, Object value) {
+    if (this != NOOP) {
+      synchronized (this) {
+        if (attributes == null) {
+          attributes = new LinkedHashMap<>();
+        }
+        attributes.put(key, String.valueOf(value));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Like {@link #setAttribute(String, Object)}, without boxing {@code value} for unsampled requests.
+   */
+  public Span setAttribute(String key, long value) {
+    return this == NOOP ? this : setAttribute(key, (Object) value);
+  }
+
+  public Span recordException(Throwable error) {
+    return this == NOOP ? this : setAttribute("error", error.getClass().getSimpleName());
+  }
+
+  /**
+   * Makes this the span returned by {@link #current()} on this thread until the returned scope is
+   * closed, which restores the previous one.
+   */
+  public Scope makeCurrent() {
+    Span previous = CURRENT.get();
+    if (this == NOOP && previous == null) {
+      // current() already returns NOOP, so there is nothing to set or restore
+      return NOOP_SCOPE;
+    }
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Ends the span; later calls are ignored. Ending the root hands the trace to the tracer, children
+   * that end after it are still added to it.
+   */
+  public void end() {
+    if (this == NOOP) {
+      return;
+    }
+    synchronized (this) {
+      if (durationNanos >= 0) {
+        return;
+      }
+      durationNanos = System.nanoTime() - startNanos;
+    }
+    if (root == this) {
+      tracer.export(this);
+    } else {
+      synchronized (root) {
+        root.children.add(this);
+      }
+    }
+  }
+
+  /**
+   * The {@code traceparent} header that makes the receiver's spans children of this one, or null for
+   * {@link #NOOP}. A caller that is not tracing sends no header, so the receiver samples at its own
+   * rate, and nothing is built for the unsampled call.
+   */
+  public String traceparent() {
+    return this == NOOP ? null : TraceContext.format(traceIdHigh, traceIdLow, spanId);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getTraceId() {
+    StringBuilder result = new StringBuilder(32);
+    TraceContext.appendHex(result, traceIdHigh);
+    TraceContext.appendHex(result, traceIdLow);
+    return result.toString();
+  }
+
+  public String getSpanId() {
+    return hex(spanId);
+  }
+
+  /**
+   * The id of the span this one was started from, possibly in the calling process, or null if it
+   * started the trace.
+   */
+  public String getParentId() {
+    return parentId == 0 ? null : hex(parentId);
+  }
+
+  public long getStartEpochMicros() {
+    return startEpochMicros;
+  }
+
+  /**
+   * How long the span took, or -1 while it has not ended.
+   */
+  public long getDurationMicros() {
+    long duration = durationNanos;
+    return duration < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(duration);
+  }
+
+  public synchronized Map<String, String> getAttributes() {
+    return attributes == null ? Collections.emptyMap() : new LinkedHashMap<>(attributes);
+  }
+
+  /**
+   * The ended descendants of a root span, in the order they ended. Empty for other spans.
+   */
+  public List<Span> getChildren() {
+    if (children == null) {
+      return Collections.emptyList();
+    }
+    synchronized (this) {
+      return new ArrayList<>(children);
+    }
+  }
+
+  private static String hex(long value) {
+    StringBuilder result = new StringBuilder(16);
+    TraceContext.appendHex(result, value);
+    return result.toString();
+  }
+
+  private static long nonZero(ThreadLocalRandom random) {
+    long value;
+    do {
+      value = random.nextLong();
+    } while (value == 0);
+    return value;
+  }
+
+  /**
+   * Restores the previously current span when closed.
+   */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
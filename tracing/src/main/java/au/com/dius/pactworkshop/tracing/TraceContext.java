@@ -0,0 +1,97 @@
+package au.com.dius.pactworkshop.tracing;
+
+/**
+ * The parts of a W3C {@code traceparent} header that are carried into a new span: the trace id, the
+ * id of the calling span and whether the caller sampled the trace.
+ */
+final class TraceContext {
+  private static final int VERSION_00_LENGTH = 55;
+
+  /**
+   * Returned for every valid header whose caller did not sample the trace. Its ids are never read, as
+   * such requests are not traced, so parsing them allocates nothing.
+   */
+  static final TraceContext UNSAMPLED = new TraceContext(0, 0, 0, false);
+
+  final long traceIdHigh;
+  final long traceIdLow;
+  final long parentId;
+  final boolean sampled;
+
+  private TraceContext(long traceIdHigh, long traceIdLow, long parentId, boolean sampled) {
+    this.traceIdHigh = traceIdHigh;
+    this.traceIdLow = traceIdLow;
+    this.parentId = parentId;
+    this.sampled = sampled;
+  }
+
+  /**
+   * Parses {@code version-traceid-parentid-flags}, or returns null if the header is malformed, as the
+   * specification asks receivers to start a new trace in that case.
+   */
+  static TraceContext parse(String traceparent) {
+    int length = traceparent.length();
+    if (length < VERSION_00_LENGTH
+      || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-'
+      || !isHex(traceparent, 0, 2) || !isHex(traceparent, 3, 32) || !isHex(traceparent, 36, 16)
+      || !isHex(traceparent, 53, 2)) {
+      return null;
+    }
+    long version = hex(traceparent, 0, 2);
+    // later versions may append fields, version 00 may not
+    if (version == 0xff || (version == 0 && length != VERSION_00_LENGTH)
+      || (length > VERSION_00_LENGTH && traceparent.charAt(VERSION_00_LENGTH) != '-')) {
+      return null;
+    }
+    long high = hex(traceparent, 3, 16);
+    long low = hex(traceparent, 19, 16);
+    long parentId = hex(traceparent, 36, 16);
+    if ((high == 0 && low == 0) || parentId == 0) {
+      return null;
+    }
+    if ((hex(traceparent, 53, 2) & 1) == 0) {
+      return UNSAMPLED;
+    }
+    return new TraceContext(high, low, parentId, true);
+  }
+
+  static String format(long traceIdHigh, long traceIdLow, long spanId) {
+    StringBuilder result = new StringBuilder(VERSION_00_LENGTH).append("00-");
+    appendHex(result, traceIdHigh);
+    appendHex(result, traceIdLow);
+    result.append('-');
+    appendHex(result, spanId);
+    return result.append("-01").toString();
+  }
+
+  static void appendHex(StringBuilder out, long value) {
+    for (int shift = 60; shift >= 0; shift -= 4) {
+      out.append(Character.forDigit((int) (value >>> shift) & 0xf, 16));
+    }
+  }
+
+  /**
+   * The value of {@code count} hex digits at {@code start}, which {@link #isHex} has checked.
+   */
+  private static long hex(String text, int start, int count) {
+    long value = 0;
+    for (int i = start; i < start + count; i++) {
+      value = (value << 4) | Character.digit(text.charAt(i), 16);
+    }
+    return value;
+  }
+
+  /**
+   * Whether the {@code count} characters at {@code start} are lowercase hex digits, the only ones the
+   * specification allows.
+   */
+  private static boolean isHex(String text, int start, int count) {
+    for (int i = start; i < start + count; i++) {
+      char c = text.charAt(i);
+      if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,190 @@
+package au.com.dius.pactworkshop.tracing;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Starts traces for a sampled fraction of requests and keeps the most recent finished ones in a ring
+ * buffer, from which they can be read in process or written out as JSON by an admin endpoint.
+ * <p>
+ * A request that arrives with a {@code traceparent} header follows the caller's sampling decision, so
+ * a trace is recorded on both sides or on neither. Requests without one, which is how a caller that
+ * is not tracing sends them, are sampled at {@code sampleRate}. Nothing is allocated for a request
+ * that is not sampled.
+ */
+public final class Tracer {
+  public static final int DEFAULT_CAPACITY = 256;
+
+  /**
+   * A tracer that samples nothing, for code that traces unconditionally.
+   */
+  public static final Tracer DISABLED = new Tracer(0);
+
+  private final double sampleRate;
+  private final AtomicReferenceArray<Span> traces;
+  private final AtomicLong exported = new AtomicLong();
+
+  public Tracer(double sampleRate) {
+    this(sampleRate, DEFAULT_CAPACITY);
+  }
+
+  public Tracer(double sampleRate, int capacity) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+    }
+    this.sampleRate = sampleRate;
+    this.traces = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Starts the root span of a request, continuing the caller's trace if {@code traceparent} is a
+   * valid header. Returns {@link Span#NOOP} if the request is not sampled.
+   */
+  public Span startSpan(String name, String traceparent) {
+    TraceContext parent = traceparent == null ? null : TraceContext.parse(traceparent);
+    return isSampled(parent) ? Span.root(this, name, parent) : Span.NOOP;
+  }
+
+  /**
+   * Like {@link #startSpan(String, String)} for a server request, naming the span
+   * {@code "<method> <path>"}. The name is only built if the request is sampled.
+   */
+  public Span startSpan(String method, String path, String traceparent) {
+    TraceContext parent = traceparent == null ? null : TraceContext.parse(traceparent);
+    return isSampled(parent) ? Span.root(this, method + ' ' + path, parent) : Span.NOOP;
+  }
+
+  private boolean isSampled(TraceContext parent) {
+    return parent != null
+      ? parent.sampled
+      : sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  void export(Span root) {
+    traces.set((int) (exported.getAndIncrement() % traces.length()), root);
+  }
+
+  /**
+   * The finished traces still in the buffer, most recent first.
+   */
+  public List<Span> recent() {
+    long end = exported.get();
+    int count = (int) Math.min(end, traces.length());
+    List<Span> result = new ArrayList<>(count);
+    for (long i = end - 1; i >= end - count; i--) {
+      Span trace = traces.get((int) (i % traces.length()));
+      if (trace != null) {
+        result.add(trace);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes the finished traces that took at least {@code minDurationMicros}, most recent first, as
+   * {@code {"traces":[...]}}. Each trace is its root span, with the spans below it in
+   * {@code children}.
+   */
+  public void writeJson(Writer out, long minDurationMicros) throws IOException {
+    out.write("{\"traces\":[");
+    boolean first = true;
+    for (Span trace : recent()) {
+      if (trace.getDurationMicros() < minDurationMicros) {
+        continue;
+      }
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+      writeSpan(out, trace);
+      out.write(",\"children\":[");
+      List<Span> children = trace.getChildren();
+      for (int i = 0; i < children.size(); i++) {
+        if (i > 0) {
+          out.write(',');
+        }
+        writeSpan(out, children.get(i));
+        out.write('}');
+      }
+      out.write("]}");
+    }
+    out.write("]}");
+  }
+
+  /**
+   * The finished traces that took at least {@code minMillis}, as {@link #writeJson} writes them, for
+   * the providers' admin endpoints.
+   */
+  public String toJson(long minMillis) {
+    StringWriter out = new StringWriter();
+    try {
+      writeJson(out, TimeUnit.MILLISECONDS.toMicros(minMillis));
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes every field of {@code span}, leaving its object open.
+   */
+  private static void writeSpan(Writer out, Span span) throws IOException {
+    out.write("{\"traceId\":\"");
+    out.write(span.getTraceId());
+    out.write("\",\"spanId\":\"");
+    out.write(span.getSpanId());
+    out.write("\",\"parentId\":");
+    String parentId = span.getParentId();
+    if (parentId == null) {
+      out.write("null");
+    } else {
+      out.write('"');
+      out.write(parentId);
+      out.write('"');
+    }
+    out.write(",\"name\":");
+    writeString(out, span.getName());
+    out.write(",\"startEpochMicros\":");
+    out.write(Long.toString(span.getStartEpochMicros()));
+    out.write(",\"durationMicros\":");
+    out.write(Long.toString(span.getDurationMicros()));
+    out.write(",\"attributes\":{");
+    boolean first = true;
+    for (Map.Entry<String, String> attribute : span.getAttributes().entrySet()) {
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+      writeString(out, attribute.getKey());
+      out.write(':');
+      writeString(out, attribute.getValue());
+    }
+    out.write('}');
+  }
+
+  private static void writeString(Writer out, String value) throws IOException {
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c < 0x20) {
+        out.write(String.format("\\u%04x", (int) c));
+      } else {
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+}
@@ -0,0 +1,117 @@
+package au.com.dius.pactworkshop.tracing;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TracerTest {
+  private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+  @Test
+  public void continuesTheCallersTrace() {
+    Tracer tracer = new Tracer(0);
+
+    Span span = tracer.startSpan("GET /provider.json", TRACEPARENT);
+
+    assertThat(span.getTraceId(), is("4bf92f3577b34da6a3ce929d0e0e4736"));
+    assertThat(span.getParentId(), is("00f067aa0ba902b7"));
+    assertThat(span.traceparent(), containsString("-4bf92f3577b34da6a3ce929d0e0e4736-"));
+    assertThat(span.traceparent(), not(containsString("00f067aa0ba902b7")));
+  }
+
+  @Test
+  public void namesServerSpansAfterTheRequest() {
+    assertThat(new Tracer(1).startSpan("GET", "/provider.json", null).getName(), is("GET /provider.json"));
+    assertThat(new Tracer(0).startSpan("GET", "/provider.json", null), is(sameInstance(Span.NOOP)));
+  }
+
+  @Test
+  public void followsTheCallersDecisionNotToSample() {
+    Tracer tracer = new Tracer(1);
+
+    assertThat(tracer.startSpan("GET /provider.json", TRACEPARENT.replace("-01", "-00")), is(sameInstance(Span.NOOP)));
+  }
+
+  @Test
+  public void unsampledSpansLeaveTheDecisionToTheReceiver() {
+    assertThat(new Tracer(0).startSpan("provider.json", null).traceparent(), is(nullValue()));
+  }
+
+  @Test
+  public void samplesRequestsWithoutAValidTraceparentAtTheSampleRate() {
+    assertThat(new Tracer(0).startSpan("GET /provider.json", null), is(sameInstance(Span.NOOP)));
+    assertThat(new Tracer(0).startSpan("GET /provider.json", "00-00000000000000000000000000000000-00f067aa0ba902b7-01"),
+      is(sameInstance(Span.NOOP)));
+    assertThat(new Tracer(0).startSpan("GET /provider.json", TRACEPARENT.toUpperCase()), is(sameInstance(Span.NOOP)));
+
+    Span span = new Tracer(1).startSpan("GET /provider.json", "garbage");
+
+    assertThat(span.isRecording(), is(true));
+    assertThat(span.getParentId(), is(nullValue()));
+  }
+
+  @Test
+  public void keepsTheMostRecentTracesWithTheirChildren() {
+    Tracer tracer = new Tracer(1, 2);
+    for (int i = 0; i < 3; i++) {
+      Span root = tracer.startSpan("request " + i, null);
+      Span child = root.startChild("render").setAttribute("count", i);
+      child.end();
+      root.end();
+    }
+
+    List<Span> recent = tracer.recent();
+
+    assertThat(recent, hasSize(2));
+    assertThat(recent.get(0).getName(), is("request 2"));
+    assertThat(recent.get(1).getName(), is("request 1"));
+    assertThat(recent.get(0).getChildren(), hasSize(1));
+    assertThat(recent.get(0).getChildren().get(0).getParentId(), is(recent.get(0).getSpanId()));
+    assertThat(recent.get(0).getChildren().get(0).getAttributes().get("count"), is("2"));
+  }
+
+  @Test
+  public void writesTracesAsJson() throws IOException {
+    Tracer tracer = new Tracer(1);
+    Span root = tracer.startSpan("GET /provider.json", TRACEPARENT);
+    root.startChild("providerJson").setAttribute("validDate", "\"quoted\"").end();
+    root.end();
+    StringWriter out = new StringWriter();
+
+    tracer.writeJson(out, 0);
+
+    assertThat(out.toString(), containsString("{\"traces\":[{\"traceId\":\"4bf92f3577b34da6a3ce929d0e0e4736\""));
+    assertThat(out.toString(), containsString("\"name\":\"providerJson\""));
+    assertThat(out.toString(), containsString("\"attributes\":{\"validDate\":\"\\\"quoted\\\"\"}"));
+  }
+
+  @Test
+  public void leavesOutTracesQuickerThanTheMinimum() {
+    Tracer tracer = new Tracer(1);
+    tracer.startSpan("GET /provider.json", null).end();
+
+    assertThat(tracer.toJson(0), containsString("\"name\":\"GET /provider.json\""));
+    assertThat(tracer.toJson(60_000), is("{\"traces\":[]}"));
+  }
+
+  @Test
+  public void currentSpanIsRestoredWhenTheScopeCloses() {
+    Span span = new Tracer(1).startSpan("GET /provider.json", null);
+
+    try (Span.Scope scope = span.makeCurrent()) {
+      assertThat(Span.current(), is(sameInstance(span)));
+    }
+
+    assertThat(Span.current(), is(sameInstance(Span.NOOP)));
+  }
+}